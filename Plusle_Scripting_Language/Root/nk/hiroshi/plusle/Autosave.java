@@ -0,0 +1,337 @@
+package nk.hiroshi.plusle;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.JTextComponent;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Saves the script editor in the background. <br>
+ * Every edit is appended to a journal file; every so often the journal is compacted by writing a snapshot of the whole
+ * text (to a temporary file which is renamed over the backup) and starting a new journal. <br>
+ * After a crash, the backup and the journal are put back together with {@link #recover(String)}.
+ * @since 19 October, 2026
+ */
+class Autosave implements DocumentListener
+{
+	/** Journal header: "PLJ1" followed by the CRC of the snapshot the journal applies to */
+	private static final int MAGIC = 0x504C4A31;
+
+	/** Journal record types */
+	private static final byte INSERT = 1,
+							  REMOVE = 2;
+
+	/** A snapshot is written after this many journal bytes, this many edits, or this many milliseconds (whichever comes first) */
+	private static final int COMPACT_BYTES = 1 << 20,
+							 COMPACT_EDITS = 4096,
+							 COMPACT_DELAY = 30000;
+
+	/** The backup, the journal of edits made since the backup was written, and the file a new backup is written to */
+	private final Path snapshot, journal, temporary;
+
+	/** Writes the journal and snapshots in order of the edits (the only thread touching the files) */
+	private final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory()
+	{
+		public Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, "Plusle Autosave");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	/** Compacts the journal when edits have been waiting for a while */
+	private final Timer timer;
+
+	/** The journal being appended to (writer thread only) */
+	private FileChannel channel;
+
+	/** The document being saved */
+	private Document document;
+
+	/** Edits and (approximate) journal bytes since the last snapshot (Event Dispatch Thread only) */
+	private int edits = 0, bytes = 0;
+
+	/** @param file The backup file; the journal is kept next to it */
+	Autosave(String file)
+	{
+		snapshot  = Paths.get(file);
+		journal   = Paths.get(file + ".journal");
+		temporary = Paths.get(file + ".tmp");
+
+		timer = new Timer(COMPACT_DELAY, new ActionListener()
+		{
+			public void actionPerformed(ActionEvent e){if(0 < edits) compact();}
+		});
+	}
+
+	/**
+	 * Starts saving the text of the editor (and of any document it is given later). The backup is written over with
+	 * the text the editor holds, which should be the one {@link #recover(String)} or {@link #read(String)} gave
+	 * @param area The script editor
+	 */
+	public void install(JTextComponent area)
+	{
+		document = area.getDocument();
+		document.addDocumentListener(this);
+
+		area.addPropertyChangeListener("document", new PropertyChangeListener()
+		{
+			public void propertyChange(PropertyChangeEvent e)
+			{
+				document.removeDocumentListener(Autosave.this);
+				document = (Document) e.getNewValue();
+				document.addDocumentListener(Autosave.this);
+				compact();
+			}
+		});
+
+		compact();
+		timer.start();
+	}
+
+	/** Writes a snapshot of the whole text in the background and starts a new journal */
+	public void compact()
+	{
+		final String text;
+		try{text = document.getText(0, document.getLength());}
+		catch(BadLocationException e){return;}
+
+		edits = 0;
+		bytes = 0;
+		writer.execute(new Runnable(){public void run(){writeSnapshot(text);}});
+	}
+
+	/** Writes a last snapshot and waits for the writer to finish (call before exiting) */
+	public void close()
+	{
+		timer.stop();
+		document.removeDocumentListener(this);
+		compact();
+		writer.shutdown();
+		try{writer.awaitTermination(10, TimeUnit.SECONDS);}
+		catch(InterruptedException e){e.printStackTrace();}
+	}
+
+	public void insertUpdate(DocumentEvent e)
+	{
+		try{journal(INSERT, e.getOffset(), e.getDocument().getText(e.getOffset(), e.getLength()), e.getLength());}
+		catch(BadLocationException x){x.printStackTrace();}
+	}
+
+	public void removeUpdate(DocumentEvent e){journal(REMOVE, e.getOffset(), null, e.getLength());}
+
+	public void changedUpdate(DocumentEvent e){} //Attributes are not saved
+
+	/**
+	 * Queues an edit to be appended to the journal, and compacts the journal if it got too long
+	 * @param type INSERT or REMOVE
+	 * @param offset Where the edit happened
+	 * @param text The inserted text (null for REMOVE)
+	 * @param length The number of characters that were inserted or removed
+	 */
+	private void journal(final byte type, final int offset, final String text, final int length)
+	{
+		writer.execute(new Runnable(){public void run(){writeRecord(type, offset, text, length);}});
+
+		bytes += 9 + (text == null ? 0 : length);
+		if(COMPACT_EDITS < ++edits || COMPACT_BYTES < bytes) compact();
+	}
+
+	/** Appends an edit to the journal (writer thread) */
+	private void writeRecord(byte type, int offset, String text, int length)
+	{
+		if(channel == null) return; //The journal could not be started
+
+		byte[] data = text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer record = ByteBuffer.allocate(9 + (data == null ? 0 : data.length));
+		record.put(type).putInt(offset);
+		if(data == null) record.putInt(length);
+		else record.putInt(data.length).put(data);
+		record.flip();
+
+		try{while(record.hasRemaining()) channel.write(record);}
+		catch(IOException e){e.printStackTrace();}
+	}
+
+	/** Writes the whole text to the backup (atomically) and starts a new journal for it (writer thread) */
+	private void writeSnapshot(String text)
+	{
+		byte[] data = text.getBytes(StandardCharsets.UTF_8);
+		CRC32 crc = new CRC32();
+		crc.update(data);
+
+		try
+		{
+			FileChannel out = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			try
+			{
+				ByteBuffer buffer = ByteBuffer.wrap(data);
+				while(buffer.hasRemaining()) out.write(buffer);
+				out.force(true);
+			}
+			finally{out.close();}
+
+			try{Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);}
+			catch(AtomicMoveNotSupportedException e){Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING);}
+
+			//If this doesn't finish, the old journal won't match the new backup and will be ignored
+			if(channel != null) channel.close();
+			channel = FileChannel.open(journal, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			ByteBuffer header = ByteBuffer.allocate(12);
+			header.putInt(MAGIC).putLong(crc.getValue()).flip();
+			while(header.hasRemaining()) channel.write(header);
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Puts back the text of the editor from a backup and its journal
+	 * @param file The backup file
+	 * @return The recovered text, or null if the journal holds no edits that aren't in the backup
+	 */
+	public static String recover(String file)
+	{
+		try
+		{
+			Path journal = Paths.get(file + ".journal"), snapshot = Paths.get(file);
+			if(!Files.isRegularFile(journal) || Files.size(journal) <= 12) return null;
+
+			byte[] base = Files.isRegularFile(snapshot) ? Files.readAllBytes(snapshot) : new byte[0];
+			ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(journal));
+			CRC32 crc = new CRC32();
+			crc.update(base);
+
+			if(in.getInt() != MAGIC || in.getLong() != crc.getValue()) return null; //Journal of an older backup
+
+			GapBuffer text = new GapBuffer(new String(base, StandardCharsets.UTF_8));
+			int replayed = 0;
+
+			while(9 <= in.remaining()) //A record cut short by the crash is dropped
+			{
+				byte type = in.get();
+				int offset = in.getInt(), length = in.getInt();
+
+				if(type == INSERT && 0 <= length && length <= in.remaining() && offset <= text.length())
+				{
+					byte[] data = new byte[length];
+					in.get(data);
+					text.insert(offset, new String(data, StandardCharsets.UTF_8));
+				}
+				else if(type == REMOVE && 0 <= length && offset + length <= text.length()) text.remove(offset, length);
+				else break;
+				replayed++;
+			}
+
+			return replayed == 0 ? null : text.toString();
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * @param file The backup file
+	 * @return The text of the backup, or null if there is none (or it is empty)
+	 */
+	public static String read(String file)
+	{
+		try
+		{
+			Path snapshot = Paths.get(file);
+			if(!Files.isRegularFile(snapshot) || Files.size(snapshot) == 0) return null;
+			return new String(Files.readAllBytes(snapshot), StandardCharsets.UTF_8);
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Text with a gap at the last edit. Replaying typing only moves the characters between one edit and the next,
+	 * instead of the whole text after every edit.
+	 */
+	private static class GapBuffer
+	{
+		private char[] chars;
+		private int gapStart, gapEnd;
+
+		private GapBuffer(String text)
+		{
+			chars = new char[text.length() + 1024];
+			text.getChars(0, text.length(), chars, 0);
+			gapStart = text.length();
+			gapEnd = chars.length;
+		}
+
+		private int length(){return chars.length - (gapEnd - gapStart);}
+
+		/** Moves the gap to an offset */
+		private void moveTo(int offset)
+		{
+			if(offset < gapStart) System.arraycopy(chars, offset, chars, gapEnd - (gapStart - offset), gapStart - offset);
+			else System.arraycopy(chars, gapEnd, chars, gapStart, offset - gapStart);
+			gapEnd += offset - gapStart;
+			gapStart = offset;
+		}
+
+		private void insert(int offset, String s)
+		{
+			moveTo(offset);
+			if(gapEnd - gapStart < s.length())
+			{
+				char[] grown = new char[(chars.length + s.length()) * 2];
+				int tail = chars.length - gapEnd;
+				System.arraycopy(chars, 0, grown, 0, gapStart);
+				System.arraycopy(chars, gapEnd, grown, grown.length - tail, tail);
+				gapEnd = grown.length - tail;
+				chars = grown;
+			}
+			s.getChars(0, s.length(), chars, gapStart);
+			gapStart += s.length();
+		}
+
+		private void remove(int offset, int length)
+		{
+			moveTo(offset);
+			gapEnd += length;
+		}
+
+		public String toString()
+		{
+			return new String(chars, 0, gapStart) + new String(chars, gapEnd, chars.length - gapEnd);
+		}
+	}
+}
@@ -0,0 +1,280 @@
+package nk.hiroshi.plusle;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GridLayout;
+import java.awt.Insets;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Map;
+
+import javax.swing.AbstractAction;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Element;
+import javax.swing.text.Highlighter;
+import javax.swing.text.JTextComponent;
+
+import nk.hiroshi.plusle.runtime.Debugger;
+import nk.hiroshi.plusle.runtime.Interpreter;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Debugs the script of the editor: F9 sets (or clears) a breakpoint on the line of the caret, and the Debug button
+ * runs the script on a thread of its own with this window showing where it is paused, the functions it is in
+ * and the values of its variables and numerals. <br>
+ * Breakpoints are highlights of the editor, so they move with the lines they are on as the script is edited.
+ * @since 19 October, 2026
+ */
+class DebugWindow implements Debugger.Listener, ActionListener
+{
+	/** Button labels */
+	private String[] bLabels = {"Continue", "Step Into", "Step Over", "Step Out", "Stop"};
+
+	/** Corresponding buttons */
+	private JButton[] buttons = new JButton[bLabels.length];
+
+	/** The window */
+	private JDialog window;
+
+	/** Where the script is paused and its values */
+	private JTextArea state;
+
+	/** The script editor */
+	private JTextComponent editor;
+
+	/** Highlights of the lines with a breakpoint, and of the line the script is paused on */
+	private ArrayList<Object> breakpoints = new ArrayList<Object>();
+	private Object current;
+
+	private Highlighter.HighlightPainter breakpoint = new DefaultHighlighter.DefaultHighlightPainter(new Color(0xF4B6B6)),
+										 paused 	= new DefaultHighlighter.DefaultHighlightPainter(new Color(0xF9E79F));
+
+	/** The session being debugged (null when nothing is) */
+	private Debugger debugger;
+
+	/**
+	 * Creates the window (hidden) and binds F9 in the editor
+	 * @param owner The main window
+	 * @param editor The script editor
+	 */
+	DebugWindow(JFrame owner, JTextComponent editor)
+	{
+		this.editor = editor;
+
+		window = new JDialog(owner, "Debugger");
+		window.setSize(360, 420);
+		window.setDefaultCloseOperation(JDialog.HIDE_ON_CLOSE);
+		window.addWindowListener(new WindowAdapter()
+		{
+			public void windowClosing(WindowEvent e){if(debugger != null) debugger.stop();}
+		});
+
+		JPanel buttonPane = new JPanel(new GridLayout(1, bLabels.length));
+		for(int i = 0; i != buttons.length; i++)
+		{
+			buttons[i] = new JButton(bLabels[i]);
+			buttons[i].setMargin(new Insets(2, 2, 2, 2));
+			buttons[i].addActionListener(this);
+			buttonPane.add(buttons[i]);
+		}
+
+		state = new JTextArea();
+		state.setEditable(false);
+		state.setFont(new Font("monospaced", Font.PLAIN, 12));
+
+		window.add(buttonPane, BorderLayout.NORTH);
+		window.add(new JScrollPane(state), BorderLayout.CENTER);
+		window.setLocationRelativeTo(owner);
+		enable(false);
+
+		editor.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_F9, 0), "breakpoint");
+		editor.getActionMap().put("breakpoint", new AbstractAction()
+		{
+			private static final long serialVersionUID = 1L;
+
+			public void actionPerformed(ActionEvent e){toggle();}
+		});
+		editor.addPropertyChangeListener("document", new PropertyChangeListener()
+		{
+			public void propertyChange(PropertyChangeEvent e) //A file was loaded; its lines have no breakpoints
+			{
+				for(Object tag : breakpoints) editor.getHighlighter().removeHighlight(tag);
+				breakpoints.clear();
+				highlight(0);
+			}
+		});
+	}
+
+	/** @return true while a script is being debugged */
+	boolean isRunning(){return debugger != null;}
+
+	/** Shows the window */
+	void show(){window.setVisible(true); window.toFront();}
+
+	/**
+	 * Debugs a script on a thread of its own; it runs until the first breakpoint
+	 * @param interpreter The interpreter of the script
+	 */
+	void start(final Interpreter interpreter)
+	{
+		debugger = new Debugger(this, false);
+		for(int line : lines()) debugger.setBreakpoint(line);
+		interpreter.setDebugger(debugger);
+
+		state.setText("Running (F9 sets a breakpoint on a line of the editor)");
+		show();
+
+		Thread thread = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				try{interpreter.run();}
+				finally
+				{
+					SwingUtilities.invokeLater(new Runnable()
+					{
+						public void run(){finished();}
+					});
+				}
+			}
+		}, "Plusle Debugger");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/** Called on the script's thread; shows where it is paused on the Event Dispatch Thread */
+	public void paused(final Debugger d)
+	{
+		SwingUtilities.invokeLater(new Runnable()
+		{
+			public void run()
+			{
+				if(d != debugger || !d.isPaused()) return;
+
+				StringBuilder text = new StringBuilder("Paused on line " + d.getLine() + "\n\nFunctions:\n");
+				String[] stack = d.getCallStack();
+				for(int i = stack.length - 1; 0 <= i; i--) text.append("  ").append(stack[i]).append('\n');
+
+				text.append("\nVariables:\n");
+				for(Map.Entry<String, String> v : d.getVariables().entrySet()) text.append("  ").append(v.getKey()).append(" = ").append(v.getValue()).append('\n');
+
+				text.append("\nNumerals:\n");
+				for(Map.Entry<String, Double> n : d.getNumerals().entrySet()) text.append("  ").append(n.getKey()).append(" = ").append(n.getValue()).append('\n');
+
+				state.setText(text.toString());
+				state.setCaretPosition(0);
+				highlight(d.getLine());
+				enable(true);
+				show();
+			}
+		});
+	}
+
+	/** The buttons of the window */
+	public void actionPerformed(ActionEvent action)
+	{
+		if(debugger == null) return;
+
+		switch(((JButton) action.getSource()).getText())
+		{
+			case "Continue":  debugger.resume();   break;
+			case "Step Into": debugger.stepInto(); break;
+			case "Step Over": debugger.stepOver(); break;
+			case "Step Out":  debugger.stepOut();  break;
+			case "Stop":	  debugger.stop();	   break;
+		}
+
+		state.setText("Running");
+		highlight(0);
+		enable(false);
+	}
+
+	/** The script ended (or was stopped) */
+	private void finished()
+	{
+		debugger = null;
+		state.setText("Finished");
+		highlight(0);
+		enable(false);
+	}
+
+	/** Sets or clears the breakpoint on the line of the editor's caret */
+	private void toggle()
+	{
+		Element root = editor.getDocument().getDefaultRootElement();
+		int index = root.getElementIndex(editor.getCaretPosition());
+
+		for(Object tag : breakpoints)
+		{
+			if(line(tag) == index + 1)
+			{
+				editor.getHighlighter().removeHighlight(tag);
+				breakpoints.remove(tag);
+				if(debugger != null) debugger.clearBreakpoint(index + 1);
+				return;
+			}
+		}
+
+		Element line = root.getElement(index);
+		try{breakpoints.add(editor.getHighlighter().addHighlight(line.getStartOffset(), line.getEndOffset(), breakpoint));}
+		catch(BadLocationException e){e.printStackTrace();}
+		if(debugger != null) debugger.setBreakpoint(index + 1);
+	}
+
+	/** @return The lines with a breakpoint (counted from 1) */
+	private ArrayList<Integer> lines()
+	{
+		ArrayList<Integer> lines = new ArrayList<Integer>();
+		for(Object tag : breakpoints) lines.add(line(tag));
+		return lines;
+	}
+
+	/** @return The line of the editor a highlight starts on (counted from 1) */
+	private int line(Object tag)
+	{
+		return editor.getDocument().getDefaultRootElement().getElementIndex(((Highlighter.Highlight) tag).getStartOffset()) + 1;
+	}
+
+	/** Highlights the line the script is paused on and scrolls to it (0 for none) */
+	private void highlight(int number)
+	{
+		if(current != null) editor.getHighlighter().removeHighlight(current);
+		current = null;
+
+		Element root = editor.getDocument().getDefaultRootElement();
+		if(number < 1 || root.getElementCount() < number) return;
+
+		Element line = root.getElement(number - 1);
+		try
+		{
+			current = editor.getHighlighter().addHighlight(line.getStartOffset(), line.getEndOffset(), paused);
+			editor.scrollRectToVisible(editor.modelToView2D(line.getStartOffset()).getBounds());
+		}
+		catch(BadLocationException e){e.printStackTrace();}
+	}
+
+	/** Enables the buttons which step the script (only while it is paused) */
+	private void enable(boolean paused)
+	{
+		for(int i = 0; i != buttons.length - 1; i++) buttons[i].setEnabled(paused);
+		buttons[buttons.length - 1].setEnabled(debugger != null);
+	}
+}
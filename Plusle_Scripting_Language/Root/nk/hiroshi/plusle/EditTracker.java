@@ -0,0 +1,74 @@
+package nk.hiroshi.plusle;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.Element;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Keeps track of the range of lines in the script editor that changed since the last time the script was parsed. <br>
+ * Every edit is merged into a single range so the parser only has to read the lines (and blocks) that changed.
+ * @since 19 October, 2026
+ */
+class EditTracker implements DocumentListener
+{
+	/** The changed lines are [first, last) in the current text; delta is how many lines were added (or removed) */
+	private int first = -1, last, delta;
+	
+	/** @return true if anything changed since the last reset */
+	public boolean isDirty(){return first != -1;}
+	
+	/** @return The first line that changed */
+	public int getFirst(){return first;}
+	
+	/** @return The line following the last line that changed (in the current text) */
+	public int getLast(){return last;}
+	
+	/** @return The number of lines that the changed lines replaced */
+	public int getRemoved(){return last - first - delta;}
+	
+	/** Forgets all changes (called once the changes were parsed) */
+	public void reset(){first = -1; last = 0; delta = 0;}
+
+	public void insertUpdate(DocumentEvent e){changed(e);}
+	public void removeUpdate(DocumentEvent e){changed(e);}
+	public void changedUpdate(DocumentEvent e){} //Attributes do not change the script
+	
+	/**
+	 * Merges the lines changed by an edit into the changed range
+	 * @param e The edit
+	 */
+	private void changed(DocumentEvent e)
+	{
+		Element root = e.getDocument().getDefaultRootElement();
+		DocumentEvent.ElementChange change = e.getChange(root);
+		int line, removed, added;
+		
+		if(change == null) //The edit stayed on one line
+		{
+			line = root.getElementIndex(e.getOffset());
+			removed = 1;
+			added = 1;
+		}
+		else
+		{
+			line = change.getIndex();
+			removed = change.getChildrenRemoved().length;
+			added = change.getChildrenAdded().length;
+		}
+		
+		if(first == -1)
+		{
+			first = line;
+			last = line + added;
+		}
+		else
+		{
+			first = Math.min(first, line);
+			last = Math.max(last, line + removed) + added - removed;
+		}
+		delta += added - removed;
+	}
+}
@@ -5,14 +5,16 @@ import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.Scanner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
 
 import javax.imageio.ImageIO;
 import javax.swing.BorderFactory;
@@ -25,12 +27,21 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
+import javax.swing.JTextPane;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 import javax.swing.border.TitledBorder;
+import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultCaret;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
 
 import nk.hiroshi.plusle.runtime.Interpreter;
+import nk.hiroshi.plusle.runtime.Metrics;
 import nk.hiroshi.plusle.runtime.Parser;
+import nk.hiroshi.plusle.runtime.Trace;
+import nk.hiroshi.plusle.script.cmd.Script;
 
 /* This file is part of Plusle Scripting Language *
  * Copyright (C) 2014-2015 Ryan Kerr              *
@@ -52,6 +63,10 @@ public class ScriptCore implements ActionListener
 		ScriptCore core = new ScriptCore();
 		try
 		{
+			//Metrics are served at http://localhost:<port>/metrics when -Dplusle.metrics.port=<port> is given
+			String port = System.getProperty("plusle.metrics.port");
+			if(port != null) Metrics.serve(Integer.parseInt(port));
+			
 			core.splashScreen();
 		}
 		catch(Exception e)
@@ -68,14 +83,16 @@ public class ScriptCore implements ActionListener
 	private JScrollPane scriptPane, consolePane;
 	
 	/** Button labels */
-	private String[]  bLabels = {"Run", "Clear", "Load", "Save", "About", "Syntax", "Help", "Quit"};
+	private String[]  bLabels = {"Run", "Debug", "Clear", "Load", "Save", "About", "Syntax", "Help", "Quit"};
 	
 	/** Corresponding buttons (for each label, there is a button) */
 	private JButton[] buttons = new JButton[bLabels.length];
 	
-	/** The Script editor and the output area */
-	private JTextArea scriptArea,  //Script editor
-					  consoleArea; //Output area
+	/** The Script editor (coloured by the highlighter) */
+	private JTextPane scriptArea;
+	
+	/** The output area */
+	private JTextArea consoleArea;
 	
 	/** Image Labels */
 	private JLabel background, //Image that lays at the back of all components
@@ -84,9 +101,36 @@ public class ScriptCore implements ActionListener
 	/** The parsing class for reading text from the scriptArea */
 	private Parser parser;
 	
+	/** Parses the text of the scriptArea. It is kept between runs so that only the changed blocks are parsed again */
+	private Parser editorParser;
+	
+	/** The lines of the scriptArea that changed since editorParser last read them */
+	private EditTracker edits = new EditTracker();
+	
+	/** Keeps script_backup.plusle.nk (and its journal) up to date with the script editor */
+	private Autosave autosave = new Autosave(BACKUP);
+	
+	/** Colours the script editor in the background */
+	private SyntaxHighlighter highlighter = new SyntaxHighlighter();
+	
+	/** Debugs the script of the editor (F9 sets a breakpoint) */
+	private DebugWindow debugWindow;
+	
 	/** The interpreter class for executing commands */
 	private Interpreter inter;
 	
+	/** Records the runs of the editor's script when -Dplusle.trace=<file> is given; it is written to the file when a run fails */
+	private Trace trace = TRACE == null ? null : new Trace(1 << 16);
+	
+	/** The file the trace is written to (the plusle.trace system property) */
+	private static final String TRACE = System.getProperty("plusle.trace");
+	
+	/** Files are read and written in slices of this many bytes (so progress can be shown) */
+	private static final int IO_SLICE = 1 << 20;
+	
+	/** The file the script editor is backed up to */
+	private static final String BACKUP = "script_backup.plusle.nk";
+	
 	/** JFileChooser to allow the user to load files and save files */
 	private JFileChooser fileChooser;
 	
@@ -123,7 +167,7 @@ public class ScriptCore implements ActionListener
 		buttonPane.setBounds(523, 100, 500, 250);
 		
 			//As you can see, Layouts are not my thing
-			int X = 0, Y = 0, W = 1000 / 10, H = 600 / 20, aY = Y + 35, aX = 120, x=0;
+			int X = 0, Y = 0, W = 1000 / 10, H = 600 / 24, aY = Y + 30, aX = 120, x=0;
 		
 			for(int i = 0; i!=buttons.length; i++)
 			{
@@ -136,8 +180,12 @@ public class ScriptCore implements ActionListener
 				x++;
 			}
 		
-		//The script editor with a default welcome script
-		scriptArea = new JTextArea();
+		//The script editor with a default welcome script; lines are not wrapped (as in a text area)
+		scriptArea = new JTextPane()
+		{
+			@Override
+			public boolean getScrollableTracksViewportWidth(){return getUI().getPreferredSize(this).width <= getParent().getSize().width;}
+		};
 		scriptArea.setFont(new Font("monospaced", Font.PLAIN, 12));
 		scriptArea.setText
 		(
@@ -166,6 +214,17 @@ public class ScriptCore implements ActionListener
 			+ "echo $h & \" \" & @Function"
 		);
 		
+		scriptArea.getDocument().addDocumentListener(edits);
+		scriptArea.addPropertyChangeListener("document", new PropertyChangeListener()
+		{
+			public void propertyChange(PropertyChangeEvent e) //A file was loaded into a new document
+			{
+				((Document) e.getOldValue()).removeDocumentListener(edits);
+				((Document) e.getNewValue()).addDocumentListener(edits);
+				editorParser = null;
+			}
+		});
+		
 		//Script Editor Container
 		scriptPane = new JScrollPane(scriptArea);
 		scriptPane.setBounds(10, 10, 1000 / 2, 600 - 45);
@@ -186,6 +245,24 @@ public class ScriptCore implements ActionListener
 		consolePane.setBounds((1000 / 2) + 20, (600 / 3) + 15, 1000 / 2 - 30, ((600 / 3) * 2) - 45);
 		consolePane.setBorder(BorderFactory.createTitledBorder(null, "Output", TitledBorder.DEFAULT_JUSTIFICATION, TitledBorder.LEFT, null, Color.RED));
 
+		//Put back the script from a session that didn't quit properly, or else the one saved when the last session quit.
+		//The autosave starts from the text of the editor, so the backup is only written over by what it holds
+		String recovered = Autosave.recover(BACKUP);
+		if(recovered != null)
+		{
+			scriptArea.setText(recovered);
+			scriptArea.setCaretPosition(0);
+			consoleArea.setText("Recovered the script from the last session (" + BACKUP + ")\n");
+		}
+		else if((recovered = Autosave.read(BACKUP)) != null)
+		{
+			scriptArea.setText(recovered);
+			scriptArea.setCaretPosition(0);
+			consoleArea.setText("Opened the script of the last session (" + BACKUP + ")\n");
+		}
+		autosave.install(scriptArea);
+		highlighter.install(scriptArea);
+		
 		//Setup the plusleWindow
 		plusleWindow.add(scriptPane);
 		plusleWindow.add(consolePane);
@@ -198,6 +275,8 @@ public class ScriptCore implements ActionListener
 		plusleWindow.setResizable(false);
 		plusleWindow.setLocationRelativeTo(null);
 		plusleWindow.setIconImage(getResource("icon.png"));
+		
+		debugWindow = new DebugWindow(plusleWindow, scriptArea);
 	}
 	
 	/**
@@ -252,54 +331,202 @@ public class ScriptCore implements ActionListener
 	}
 	
 	/**
-	 * Backup text in script editor <br>
-	 * I didn't like calling up the JFileChooser each time I pressed Quit when debugging
+	 * Parses the script editor. The first time (and after an error) the whole text is parsed; 
+	 * afterwards only the lines which changed since the last run are given to the parser
+	 * @return The script, or null if it could not be parsed
 	 */
-	private void backup()
+	private Script parseEditor()
 	{
-		try 
+		Script script;
+		
+		if(editorParser == null)
 		{
-			save("script_backup.plusle.nk", scriptArea.getText().split("\n"));
-		} 
-		catch (IOException e)
+			editorParser = new Parser(consoleArea);
+			script = editorParser.update(0, 0, lines(0, scriptArea.getDocument().getDefaultRootElement().getElementCount()));
+		}
+		else if(edits.isDirty()) script = editorParser.update(edits.getFirst(), edits.getRemoved(), lines(edits.getFirst(), edits.getLast()));
+		else script = editorParser.reset();
+		
+		edits.reset();
+		if(script == null) editorParser = null; //Parse everything again next time
+		return script;
+	}
+	
+	/**
+	 * Reads lines from the script editor
+	 * @param first The first line to read
+	 * @param last The line following the last line to read
+	 * @return The lines (without line breaks)
+	 */
+	private String[] lines(int first, int last)
+	{
+		Document doc = scriptArea.getDocument();
+		Element root = doc.getDefaultRootElement();
+		String[] lines = new String[last - first];
+		
+		try
 		{
-			consoleArea.setText("Error: " + e.getMessage());
-			e.printStackTrace();
+			for(int i = first; i != last; i++)
+			{
+				Element line = root.getElement(i);
+				String text = doc.getText(line.getStartOffset(), line.getEndOffset() - line.getStartOffset());
+				lines[i - first] = text.endsWith("\n") ? text.substring(0, text.length() - 1) : text;
+			}
 		}
+		catch(BadLocationException e){e.printStackTrace();}
+		
+		return lines;
 	}
 	
 	/**
-	 * Writes text to file
+	 * Writes text to file. The text is encoded once and written through a FileChannel in large slices
 	 * @param file File to write to
-	 * @param input Lines to write
+	 * @param text Text to write
+	 * @param worker Receives the progress of the write (may be null)
 	 * @throws IOException In the event writing is not possible 
 	 */
-	private static void save(String file, String[] input) throws IOException
+	private static void save(String file, String text, FileWorker<?> worker) throws IOException
 	{
 		if(!file.endsWith(".plusle.nk")) file += ".plusle.nk";
-		PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(file, false)));
-		for(String s : input) pw.println(s);
-		pw.close();
+		if(!text.endsWith("\n")) text += "\n";
+		
+		ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+		FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		try
+		{
+			while(buffer.hasRemaining())
+			{
+				buffer.limit(Math.min(buffer.capacity(), buffer.position() + IO_SLICE));
+				channel.write(buffer);
+				buffer.limit(buffer.capacity());
+				if(worker != null) worker.progress(buffer.position(), buffer.capacity());
+			}
+		}
+		finally{channel.close();}
 	}
 	
 	/**
-	 * Read lines from a file
+	 * Reads a whole file through a FileChannel in large slices
 	 * @param file File to read from
-	 * @return The lines that were read
+	 * @param worker Receives the progress of the read (may be null)
+	 * @return The text that was read, with "\n" line breaks
 	 * @throws Exception
 	 */
-	private static String[] load(String file) throws Exception
+	private static String load(String file, FileWorker<?> worker) throws Exception
 	{
 		if(file.endsWith(".plusle.nk"))
 		{
-			Scanner scan = new Scanner(new BufferedReader(new FileReader(file)));
-			ArrayList<String> input = new ArrayList<String>();
-			while(scan.hasNext()) input.add(scan.nextLine());
-			scan.close();
-			return input.toArray(new String[input.size()]);
+			FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+			ByteBuffer buffer;
+			try
+			{
+				if(Integer.MAX_VALUE < channel.size()) throw new Exception("File is too large");
+				buffer = ByteBuffer.allocate((int) channel.size());
+				
+				while(buffer.hasRemaining())
+				{
+					buffer.limit(Math.min(buffer.capacity(), buffer.position() + IO_SLICE));
+					if(channel.read(buffer) == -1) break; //The file got shorter while reading
+					buffer.limit(buffer.capacity());
+					if(worker != null) worker.progress(buffer.position(), buffer.capacity());
+				}
+			}
+			finally{channel.close();}
+			
+			String text = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+			return text.indexOf('\r') < 0 ? text : text.replace("\r\n", "\n");
 		}
 		else throw new Exception("File is not a .plusle.nk file");
 	}
+	
+	/**
+	 * Runs file operations off the Event Dispatch Thread; a progress dialog appears when they take long enough to notice
+	 * @param <T> The result of the operation
+	 */
+	private abstract class FileWorker<T> extends SwingWorker<T, Void>
+	{
+		/** Shows the progress of the operation */
+		private final ProgressMonitor monitor;
+		
+		/** @param note What is being done (shown in the progress dialog) */
+		private FileWorker(String note)
+		{
+			monitor = new ProgressMonitor(plusleWindow, note, null, 0, 100);
+			monitor.setMillisToDecideToPopup(100);
+			monitor.setMillisToPopup(250);
+			
+			addPropertyChangeListener(new PropertyChangeListener()
+			{
+				public void propertyChange(PropertyChangeEvent e)
+				{
+					if("progress".equals(e.getPropertyName())) monitor.setProgress((Integer) e.getNewValue());
+				}
+			});
+		}
+		
+		/** Updates the progress of the operation (called from the background thread) */
+		void progress(long done, long total)
+		{
+			setProgress(total == 0 ? 100 : (int) (done * 100 / total));
+		}
+		
+		/** Runs on the Event Dispatch Thread once the operation finished */
+		protected abstract void finished(T result);
+		
+		@Override
+		protected void done()
+		{
+			monitor.close();
+			try{finished(get());}
+			catch(ExecutionException e){consoleArea.setText("Error: " + e.getCause().getMessage());}
+			catch(InterruptedException e){consoleArea.setText("Error: " + e.getMessage());}
+		}
+	}
+	
+	/**
+	 * Loads a file into a new document in the background and swaps it into the script editor when it's done. 
+	 * The document is filled with a single insertion, so the editor is never rebuilt line by line.
+	 * @param file The file to load
+	 */
+	private void loadFile(final String file)
+	{
+		final Document doc = scriptArea.getUI().getEditorKit(scriptArea).createDefaultDocument();
+		
+		new FileWorker<Document>("Loading " + file)
+		{
+			protected Document doInBackground() throws Exception
+			{
+				doc.insertString(0, load(file, this), null);
+				return doc;
+			}
+			
+			protected void finished(Document result)
+			{
+				scriptArea.setDocument(result);
+				scriptArea.setCaretPosition(0);
+			}
+		}.execute();
+	}
+	
+	/**
+	 * Saves the text of the script editor in the background
+	 * @param file The file to write to
+	 */
+	private void saveFile(final String file)
+	{
+		final String text = scriptArea.getText();
+		
+		new FileWorker<Void>("Saving " + file)
+		{
+			protected Void doInBackground() throws Exception
+			{
+				save(file, text, this);
+				return null;
+			}
+			
+			protected void finished(Void result){}
+		}.execute();
+	}
 
 	/**
 	 * This is intended only for the Buttons. Buttons are identified and trigger their corresponding by label, not object.
@@ -316,33 +543,38 @@ public class ScriptCore implements ActionListener
 			switch(label)
 			{
 				case "Run":
+					if(debugWindow.isRunning()){debugWindow.show(); break;}
 					consoleArea.setText("");
-					parser = new Parser(scriptArea.getText().split("\n"), consoleArea);
-					inter = new Interpreter(parser.getScript(), consoleArea);
+					inter = new Interpreter(parseEditor(), consoleArea);
+					if(trace != null)
+					{
+						trace.dumpOnError(new File(TRACE));
+						inter.setTrace(trace);
+					}
 					inter.run();
 					break;
 				
+				case "Debug": //Runs a copy of the script on its own thread, so the editor can step it
+					if(debugWindow.isRunning()){debugWindow.show(); break;}
+					consoleArea.setText("");
+					if(parseEditor() == null) break;
+					inter = new Interpreter(editorParser.instance(), consoleArea);
+					debugWindow.start(inter);
+					break;
+				
 				case "Save":
-					try{save(fileChooser(true), scriptArea.getText().split("\n"));}
+					try{saveFile(fileChooser(true));}
 					catch(Exception e)
 					{
 						consoleArea.setText("Error: " + e.getMessage());
 					}
 					break;
 				case "Load":
-					String[] load;
-					try
-					{
-						String file = fileChooser(false);
-						load = load(file);
-					}
+					try{loadFile(fileChooser(false));}
 					catch(Exception e)
 					{
 						consoleArea.setText("Error: " + e.getMessage());
-						load = scriptArea.getText().split("\n");
 					}
-					scriptArea.setText("");
-					for(String line : load) scriptArea.setText(scriptArea.getText() + line + "\n");
 					break;
 					
 				case "Syntax": //Syntax Reference
@@ -358,7 +590,11 @@ public class ScriptCore implements ActionListener
 						"echo \"-- Comment\"",
 						"echo \"<var> = \"Set <var> value\"\"",
 						"echo \"<num> = Set <num> value\"",
-						"echo \"<num> = <num A> <+-*/> <num B>\""
+						"echo \"<num> = <num A> <+-*/> <num B>\"",
+						"echo \"arr: <arr> = <n> <n> ... || arr: <arr> = [<size>]\"",
+						"echo \"'$arr[i]' Array Value; <arr>[i] = <num>\"",
+						"echo \"<arr> <+-*/> <num> || <arr> <+-> $<arr B>\"",
+						"echo \"<num> = <sum|min|max|length> $<arr>\""
 					});
 					inter = new Interpreter(parser.getScript(), consoleArea);
 					inter.run();
@@ -387,20 +623,32 @@ public class ScriptCore implements ActionListener
 						"echo \"return <text> || Sets the value of a function\"",
 						"echo \"if <condition> <function> || Checks <condition>\"",
 						"echo \"else <function> || Runs the function if false\"",
-						"echo \"get <system.property> || Prints system property\""
+						"echo \"get <system.property> || Prints system property\"",
+						"echo \"import <file> [as <name>] || Adds <name>.<function> etc. from another script\"",
+						"echo \"<num> = <expression> || Such as ($a + 1) * sqrt($b) (+ - * / % ^ pow mod min max abs ...)\"",
+						"echo \"call <host function> [<args>] || Runs a Java function, such as Math.sqrt\"",
+						"echo \"<var|num> = call <host function> [<args>] || Stores its result\"",
+						"echo \"map: <map> = {} || map: <map> = <key>:<value> ...\"",
+						"echo \"put <map> <key> <value> || Sets a value of a map\"",
+						"echo \"get <map> <key> <var|num> || Reads a value of a map\"",
+						"echo \"remove <map> <key> || Removes a key from a map\"",
+						"echo \"contains <map> <key> <num> || Sets <num> to 1 if <key> is in the map\"",
+						"echo \"each <map> <var> <var|num> <function> || Runs <function> for each key\"",
+						"echo \"each <arr> <num> <function> || Runs <function> for each value\"",
+						"echo \"parallel each <arr> <num> <function> [<total>] || Same, on all cores\""
 					});
 					inter = new Interpreter(parser.getScript(), consoleArea);
 					inter.run();
 					break;
 					
 				case "Clear": //Backup and clear text
-					backup();
+					autosave.compact();
 					consoleArea.setText("");
 					scriptArea.setText("");
 					break;
 					
 				case "Quit": //Backup and exit
-					backup();
+					autosave.close();
 					plusleWindow.dispose();
 					System.exit(0);
 					break;
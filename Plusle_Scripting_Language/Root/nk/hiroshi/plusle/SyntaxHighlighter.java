@@ -0,0 +1,355 @@
+package nk.hiroshi.plusle;
+
+import java.awt.Color;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.JTextPane;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.StyledDocument;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Colours the script editor: comments, function headers and script names, declarations, $ and @ references,
+ * commands and quoted text. <br>
+ * Edits are merged into a range of damaged lines (as the {@link EditTracker} does). The lines are read and classified
+ * on a background thread, {@link #CHUNK} lines at a time, and only the colouring of the runs which changed happens on the Event Dispatch Thread,
+ * in slices of a few milliseconds, so a new document (or a large paste) is coloured between keystrokes. A chunk classified before
+ * a later edit is thrown away (or left part coloured) and read again. Colouring changes only attributes, which the other listeners of the editor ignore.
+ * @since 19 October, 2026
+ */
+class SyntaxHighlighter implements DocumentListener
+{
+	/** Token classes (indexes of their styles) */
+	static final int PLAIN = 0, COMMENT = 1, HEADER = 2, DECLARATION = 3, REFERENCE = 4, COMMAND = 5, TEXT = 6;
+
+	/** Lines classified at a time */
+	private static final int CHUNK = 512;
+
+	/** The Event Dispatch Thread colours for at most this many nanoseconds at a time, then lets other events (keystrokes) run */
+	private static final long SLICE = 8000000;
+
+	/** The style of each token class */
+	private final SimpleAttributeSet[] styles =
+	{
+		style(Color.BLACK, false, false),
+		style(new Color(0x808080), false, true),
+		style(new Color(0x0033B3), true, false),
+		style(new Color(0x871094), true, false),
+		style(new Color(0xB35900), false, false),
+		style(new Color(0x00627A), false, false),
+		style(new Color(0x067D17), false, false)
+	};
+
+	/** Classifies the damaged lines (the only thread besides the Event Dispatch Thread touching them) */
+	private final ExecutorService lexer = Executors.newSingleThreadExecutor(new ThreadFactory()
+	{
+		public Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, "Plusle Highlighter");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	/** The document being coloured */
+	private StyledDocument document;
+
+	/** The damaged lines are [first, last) in the current text; first is -1 once everything is coloured (Event Dispatch Thread only) */
+	private int first = -1, last;
+
+	/** Counts the edits (changed while the document is locked for writing, so it is steady while the document is read) */
+	private volatile long version;
+
+	/** true while a chunk is being classified */
+	private boolean busy;
+
+	/**
+	 * Colours the text of a text pane, and of any document it is given later
+	 * @param pane The script editor
+	 */
+	public void install(JTextPane pane)
+	{
+		attach(pane.getStyledDocument());
+		pane.addPropertyChangeListener("document", new PropertyChangeListener()
+		{
+			public void propertyChange(PropertyChangeEvent e) //A file was loaded into a new document
+			{
+				document.removeDocumentListener(SyntaxHighlighter.this);
+				attach((StyledDocument) e.getNewValue());
+			}
+		});
+	}
+
+	/** Starts colouring a document, all of which is damaged */
+	private void attach(StyledDocument doc)
+	{
+		document = doc;
+		doc.addDocumentListener(this);
+		version++;
+		first = 0;
+		last = doc.getDefaultRootElement().getElementCount();
+		schedule();
+	}
+
+	public void insertUpdate(DocumentEvent e){damaged(e);}
+	public void removeUpdate(DocumentEvent e){damaged(e);}
+	public void changedUpdate(DocumentEvent e){} //The colouring itself
+
+	/**
+	 * Merges the lines changed by an edit into the damaged range
+	 * @param e The edit
+	 */
+	private void damaged(DocumentEvent e)
+	{
+		version++;
+		if(!SwingUtilities.isEventDispatchThread()) //Only the Event Dispatch Thread keeps the damaged range: the whole text is coloured again
+		{
+			SwingUtilities.invokeLater(new Runnable()
+			{
+				public void run()
+				{
+					first = 0;
+					last = document.getDefaultRootElement().getElementCount();
+					schedule();
+				}
+			});
+			return;
+		}
+		
+		Element root = e.getDocument().getDefaultRootElement();
+		DocumentEvent.ElementChange change = e.getChange(root);
+		int line, removed, added;
+
+		if(change == null) //The edit stayed on one line
+		{
+			line = root.getElementIndex(e.getOffset());
+			removed = 1;
+			added = 1;
+		}
+		else
+		{
+			line = change.getIndex();
+			removed = change.getChildrenRemoved().length;
+			added = change.getChildrenAdded().length;
+		}
+
+		if(first == -1)
+		{
+			first = line;
+			last = line + added;
+		}
+		else
+		{
+			first = Math.min(first, line);
+			last = Math.max(last, line + removed) + added - removed;
+		}
+		last = Math.min(last, root.getElementCount());
+		schedule();
+	}
+
+	/** Classifies the next chunk of damaged lines in the background, unless a chunk is being classified already */
+	private void schedule()
+	{
+		if(busy || first == -1) return;
+
+		final StyledDocument doc = document;
+		final long edit = version;
+		final int from = first, to = Math.min(last, first + CHUNK);
+		busy = true;
+
+		lexer.execute(new Runnable()
+		{
+			public void run()
+			{
+				final int[][] runs = classify(doc, from, to, edit);
+				SwingUtilities.invokeLater(new Runnable()
+				{
+					public void run(){colour(doc, from, to, edit, runs, 0);}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Reads and classifies lines (on the background thread)
+	 * @return The runs of each line in the document (see {@link #lex(String)}), null if the document was edited since the lines were chosen
+	 */
+	private int[][] classify(final StyledDocument doc, final int from, final int to, final long edit)
+	{
+		final int[] starts = new int[to - from];
+		final String[] lines = new String[to - from];
+		final boolean[] read = {false};
+
+		doc.render(new Runnable()
+		{
+			public void run()
+			{
+				Element root = doc.getDefaultRootElement();
+				if(version != edit || root.getElementCount() < to) return;
+
+				try
+				{
+					for(int i = from; i != to; i++)
+					{
+						Element line = root.getElement(i);
+						starts[i - from] = line.getStartOffset();
+						lines[i - from] = doc.getText(line.getStartOffset(), line.getEndOffset() - line.getStartOffset());
+					}
+					read[0] = true;
+				}
+				catch(BadLocationException e){e.printStackTrace();}
+			}
+		});
+		if(!read[0]) return null;
+
+		int[][] runs = new int[lines.length][];
+		for(int i = 0; i != lines.length; i++)
+		{
+			int[] r = runs[i] = lex(lines[i]);
+			for(int j = 0; j < r.length; j += 3){r[j] += starts[i]; r[j + 1] += starts[i];}
+		}
+		return runs;
+	}
+
+	/**
+	 * Colours a classified chunk (on the Event Dispatch Thread) if nothing was edited since, and classifies the next one.
+	 * When a slice of time runs out, the rest of the chunk is coloured after the events waiting
+	 * @param line The line of the chunk to go on from
+	 */
+	private void colour(final StyledDocument doc, final int from, final int to, final long edit, final int[][] runs, int line)
+	{
+		if(runs != null && edit == version && doc == document)
+		{
+			long start = System.nanoTime();
+			for(; line != runs.length; line++)
+			{
+				if(SLICE < System.nanoTime() - start)
+				{
+					final int next = line;
+					SwingUtilities.invokeLater(new Runnable()
+					{
+						public void run(){colour(doc, from, to, edit, runs, next);}
+					});
+					return;
+				}
+
+				int[] r = runs[line];
+				for(int j = 0; j < r.length; j += 3)
+				{
+					//Most of a line which was typed on is coloured already; only the runs which changed are written
+					Element e = doc.getCharacterElement(r[j]);
+					if(r[j] < e.getStartOffset() || e.getEndOffset() < r[j + 1] || !e.getAttributes().isEqual(styles[r[j + 2]]))
+						doc.setCharacterAttributes(r[j], r[j + 1] - r[j], styles[r[j + 2]], true);
+				}
+			}
+
+			if(last <= to) first = -1;
+			else first = to;
+		}
+		busy = false;
+		schedule();
+	}
+
+	/**
+	 * Splits a line into tokens
+	 * @param line The line (a line break at the end is left plain)
+	 * @return The runs of the line as {start, end, class, start, end, class...}, covering the whole line
+	 */
+	static int[] lex(String line)
+	{
+		int n = line.length(), i = 0;
+		if(line.endsWith("\n")) n--;
+		while(i < n && Character.isWhitespace(line.charAt(i))) i++;
+
+		Runs runs = new Runs();
+		if(line.startsWith("#", i) || line.startsWith("--", i) || line.startsWith("//", i)) runs.add(i, n, COMMENT);
+		else if(line.startsWith("[", i) || line.startsWith("::", i)) runs.add(i, n, HEADER);
+		else if(i < n)
+		{
+			int word = i;
+			while(word < n && line.charAt(word) != ' ') word++;
+
+			String first = line.substring(i, word);
+			if(first.equals("var:") || first.equals("num:") || first.equals("arr:") || first.equals("map:")) runs.add(i, word, DECLARATION);
+			else if(line.startsWith(" = ", word)) runs.add(i, word, REFERENCE); //An assignment
+			else if(first.charAt(0) != '$' && first.charAt(0) != '@' && first.charAt(0) != '"') runs.add(i, word, COMMAND);
+			else word = i;
+
+			for(i = word; i < n;)
+			{
+				char c = line.charAt(i);
+				int end = i + 1;
+
+				if(c == '"')
+				{
+					while(end < n && line.charAt(end) != '"') end++;
+					runs.add(i, Math.min(n, end + 1), TEXT);
+				}
+				else if((c == '$' || c == '@') && end < n && isName(line.charAt(end)))
+				{
+					while(end < n && isName(line.charAt(end))) end++;
+					runs.add(i, end, REFERENCE);
+				}
+				i = Math.min(n, end + (c == '"' ? 1 : 0));
+			}
+		}
+		return runs.finish(line.length());
+	}
+
+	/** @return true if a character can be part of a name (modules are "module.name") */
+	private static boolean isName(char c){return Character.isLetterOrDigit(c) || c == '.' || c == '_';}
+
+	/** Runs of a line, with the gaps between them filled in as plain text and touching runs of the same class joined */
+	private static final class Runs
+	{
+		private int[] runs = new int[12];
+		private int size;
+
+		/** Adds a run (which starts at or after the end of the last one) */
+		private void add(int start, int end, int type)
+		{
+			int last = size == 0 ? 0 : runs[size - 2];
+			if(last < start) add(last, start, PLAIN);
+			if(start == end) return;
+
+			if(size != 0 && runs[size - 1] == type && runs[size - 2] == start) runs[size - 2] = end;
+			else
+			{
+				if(runs.length == size) runs = Arrays.copyOf(runs, size * 2);
+				runs[size++] = start;
+				runs[size++] = end;
+				runs[size++] = type;
+			}
+		}
+
+		/** @return The runs, covering the line up to its length */
+		private int[] finish(int length)
+		{
+			add(size == 0 ? 0 : runs[size - 2], length, PLAIN);
+			return Arrays.copyOf(runs, size);
+		}
+	}
+
+	/** @return A style of a colour */
+	private static SimpleAttributeSet style(Color colour, boolean bold, boolean italic)
+	{
+		SimpleAttributeSet style = new SimpleAttributeSet();
+		StyleConstants.setForeground(style, colour);
+		StyleConstants.setBold(style, bold);
+		StyleConstants.setItalic(style, italic);
+		return style;
+	}
+}
@@ -0,0 +1,101 @@
+package nk.hiroshi.plusle.bench;
+
+import java.util.ArrayList;
+
+import nk.hiroshi.plusle.runtime.Interpreter;
+import nk.hiroshi.plusle.runtime.JvmCompiler;
+import nk.hiroshi.plusle.runtime.JvmScript;
+import nk.hiroshi.plusle.runtime.Output;
+import nk.hiroshi.plusle.runtime.Parser;
+import nk.hiroshi.plusle.script.cmd.Script;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Times the interpreter against scripts compiled by the {@link JvmCompiler}, on an arithmetic heavy script 
+ * (a few calls, many numeral statements) and a call heavy script (many calls of small functions). <br>
+ * Usage: JvmBench [fan out] [rounds]
+ * @since 19 October, 2026
+ */
+public class JvmBench
+{
+	public static void main(String[] args) throws Exception
+	{
+		int fanOut = args.length < 1 ? 16 : Integer.parseInt(args[0]),
+			rounds = args.length < 2 ? 5 : Integer.parseInt(args[1]);
+		
+		System.out.printf("%-12s %-12s %12s %12s %8s%n", "script", "mode", "compile (ms)", "best (ms)", "speedup");
+		bench("arithmetic", script(fanOut, 40), rounds);
+		bench("calls", script(fanOut, 1), rounds);
+	}
+	
+	/** Runs a script with the interpreter and compiled, checking that both end with the same total */
+	private static void bench(String name, String[] lines, int rounds)
+	{
+		Script interpreted = new Parser(lines).getScript();
+		double serial = Double.MAX_VALUE, total = 0.0;
+		for(int r = 0; r != rounds; r++)
+		{
+			interpreted.getNumeral("total").setValue(0.0);
+			long start = System.nanoTime();
+			new Interpreter(interpreted).run();
+			serial = Math.min(serial, (System.nanoTime() - start) / 1e6);
+			total = interpreted.getNumeral("total").getValue();
+		}
+		System.out.printf("%-12s %-12s %12s %12.3f %7.1fx%n", name, "interpreter", "-", serial, 1.0);
+		
+		Script script = new Parser(lines).getScript();
+		long start = System.nanoTime();
+		JvmScript compiled = JvmCompiler.compile(script, Output.CONSOLE);
+		double compile = (System.nanoTime() - start) / 1e6, best = Double.MAX_VALUE;
+		if(compiled == null)
+		{
+			System.out.printf("%-12s %-12s %12s%n", name, "compiled", "unavailable");
+			return;
+		}
+		
+		for(int r = 0; r != rounds; r++)
+		{
+			script.getNumeral("total").setValue(0.0);
+			start = System.nanoTime();
+			compiled.run();
+			best = Math.min(best, (System.nanoTime() - start) / 1e6);
+		}
+		if(script.getNumeral("total").getValue() != total || !script.getNumeral("y").getValue().equals(interpreted.getNumeral("y").getValue()))
+			throw new IllegalStateException("Wrong total: " + script.getNumeral("total").getValue());
+		System.out.printf("%-12s %-12s %12.1f %12.3f %7.1fx%n", name, "compiled", compile, best, serial / best);
+	}
+	
+	/**
+	 * @param fanOut How many times each level calls the next one (four levels)
+	 * @param statements How many numeral statements the innermost function runs
+	 * @return A script which calls fanOut^4 times a function of statements numeral statements
+	 */
+	private static String[] script(int fanOut, int statements)
+	{
+		ArrayList<String> lines = new ArrayList<String>();
+		lines.add("num: total = 0");
+		lines.add("num: x = 1");
+		lines.add("num: y = 0");
+		lines.add("a");
+		
+		String[] levels = {"a", "b", "c", "d"};
+		for(int l = 0; l != levels.length; l++)
+		{
+			lines.add("[" + levels[l] + "]");
+			if(l == levels.length - 1)
+			{
+				lines.add("y = $y + $x");
+				for(int s = 1; s < statements; s++) lines.add(s % 2 == 0 ? "y = $y * 3" : "y = $y / 2");
+				lines.add("total + 1");
+				lines.add("if $y > 1000000 reset");
+			}
+			else for(int f = 0; f != fanOut; f++) lines.add(levels[l + 1]);
+		}
+		lines.add("[reset]");
+		lines.add("y = 0 + 0");
+		
+		return lines.toArray(new String[lines.size()]);
+	}
+}
@@ -0,0 +1,70 @@
+package nk.hiroshi.plusle.bench;
+
+import java.util.ArrayList;
+
+import nk.hiroshi.plusle.runtime.Interner;
+import nk.hiroshi.plusle.runtime.Output;
+import nk.hiroshi.plusle.runtime.Parser;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Shows how much heap a catalog of loaded scripts holds with and without the {@link Interner}. <br>
+ * Each script of the catalog is written by the {@link ScriptGenerator} with the same functions (as scripts copying
+ * a library of helpers would be) and a declaration of its own; every line is a string of its own, as if each script was read from a file.
+ * The catalog is parsed once without sharing and once with it, and the heap it holds is printed for both. <br>
+ * Usage: MemoryBench [scripts] [functions]
+ * @since 19 October, 2026
+ */
+public class MemoryBench
+{
+	public static void main(String[] args)
+	{
+		int scripts   = args.length < 1 ? 500 : Integer.parseInt(args[0]),
+			functions = args.length < 2 ? 200 : Integer.parseInt(args[1]);
+
+		String[] library = ScriptGenerator.generate(functions, functions, functions / 2, 8, 4);
+
+		long unshared = measure(library, scripts, false);
+		long shared = measure(library, scripts, true);
+
+		System.out.printf("%d scripts of %d lines%n", scripts, library.length + 1);
+		System.out.printf("%-10s %12s %14s%n", "sharing", "heap (KiB)", "per script");
+		System.out.printf("%-10s %12d %14d%n", "off", unshared / 1024, unshared / scripts);
+		System.out.printf("%-10s %12d %14d%n", "on", shared / 1024, shared / scripts);
+		System.out.printf("%.1fx less%n%n", unshared / (double) Math.max(1, shared));
+		System.out.print(Interner.report());
+	}
+
+	/** @return The bytes of heap a catalog of parsed scripts holds */
+	private static long measure(String[] library, int scripts, boolean sharing)
+	{
+		Interner.setEnabled(sharing);
+		ArrayList<Parser> catalog = new ArrayList<Parser>();
+
+		long before = used();
+		for(int s = 0; s != scripts; s++)
+		{
+			String[] lines = new String[library.length + 1];
+			for(int i = 0; i != library.length; i++) lines[i] = new String(library[i].toCharArray());
+			lines[library.length] = "var: id = script" + s;
+
+			Parser parser = new Parser(lines, Output.CONSOLE);
+			if(parser.getScript() == null) throw new IllegalStateException("The generated script did not parse");
+			catalog.add(parser);
+		}
+		long heap = used() - before;
+
+		if(catalog.size() != scripts) throw new IllegalStateException(); //Keeps the catalog reachable while it is measured
+		return heap;
+	}
+
+	/** @return The heap in use once the garbage collector ran */
+	private static long used()
+	{
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i != 3; i++) System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
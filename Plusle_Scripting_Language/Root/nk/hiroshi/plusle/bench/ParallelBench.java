@@ -0,0 +1,85 @@
+package nk.hiroshi.plusle.bench;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import nk.hiroshi.plusle.runtime.Interpreter;
+import nk.hiroshi.plusle.runtime.Parser;
+import nk.hiroshi.plusle.script.cmd.Script;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Times "each" against "parallel each" on pools of 1, 2, 4 and 8 threads. <br>
+ * Usage: ParallelBench [values] [rounds]
+ * @since 19 October, 2026
+ */
+public class ParallelBench
+{
+	public static void main(String[] args) throws Exception
+	{
+		int values = args.length < 1 ? 200000 : Integer.parseInt(args[0]),
+			rounds = args.length < 2 ? 5 : Integer.parseInt(args[1]);
+
+		System.out.printf("%-10s %8s %12s %14s %8s%n", "mode", "threads", "best (ms)", "values/s", "speedup");
+		double serial = time("each", 1, values, rounds);
+		print("each", 1, values, serial, serial);
+
+		for(int threads = 1; threads <= 8; threads *= 2) print("parallel", threads, values, time("parallel each", threads, values, rounds), serial);
+	}
+
+	/**
+	 * Runs the benchmark script a number of times on a pool
+	 * @return The fastest run in milliseconds
+	 */
+	private static double time(String command, int threads, int values, int rounds) throws Exception
+	{
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		double best = Double.MAX_VALUE, total = 0.0;
+
+		try
+		{
+			for(int r = 0; r != rounds; r++)
+			{
+				final Script script = new Parser(script(command, values)).getScript();
+				long start = System.nanoTime();
+				pool.submit(new Callable<Void>()
+				{
+					public Void call(){new Interpreter(script).run(); return null;}
+				}).get();
+				best = Math.min(best, (System.nanoTime() - start) / 1e6);
+				total = script.getNumeral("total").getValue();
+			}
+		}
+		finally{pool.shutdown();}
+
+		if(total != values) throw new IllegalStateException("Wrong total: " + total);
+		return best;
+	}
+
+	private static void print(String mode, int threads, int values, double ms, double serial)
+	{
+		System.out.printf("%-10s %8d %12.1f %14.0f %7.2fx%n", mode, threads, ms, values / (ms / 1000), serial / ms);
+	}
+
+	/** @return A script which runs a few numeral statements for each value of an array */
+	private static String[] script(String command, int values)
+	{
+		return new String[]
+		{
+			"arr: data = [" + values + "]",
+			"num: x = 0",
+			"num: y = 0",
+			"num: total = 0",
+			"data + 1",
+			command + " data x work" + (command.startsWith("parallel") ? " total" : ""),
+			"[work]",
+			"y = $x * 3",
+			"y = $y - 1",
+			"y = $y / 2",
+			"y = $y * $y",
+			"total + $y"
+		};
+	}
+}
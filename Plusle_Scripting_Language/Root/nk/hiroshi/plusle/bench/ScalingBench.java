@@ -0,0 +1,102 @@
+package nk.hiroshi.plusle.bench;
+
+import nk.hiroshi.plusle.runtime.Interpreter;
+import nk.hiroshi.plusle.runtime.Output;
+import nk.hiroshi.plusle.runtime.Parser;
+import nk.hiroshi.plusle.script.cmd.Script;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Shows how parsing and running scale with the size of a script, on scripts written by the {@link ScriptGenerator}. <br>
+ * The first table doubles the number of functions, names and conditional statements together and prints the time to parse,
+ * the time to run, the heap the parsed script holds, and the slope of each time against the size (log-log: 1 is linear,
+ * 2 is quadratic). The second table keeps the script and makes each echo longer, which shows how printing scales with its pieces. <br>
+ * Usage: ScalingBench [largest size] [rounds] [depth]
+ * @since 19 October, 2026
+ */
+public class ScalingBench
+{
+	/** Drops the text the scripts write */
+	private static final Output NONE = new Output()
+	{
+		public void print(String text){}
+		public void println(String line){}
+	};
+
+	public static void main(String[] args) throws Exception
+	{
+		int largest = args.length < 1 ? 8000 : Integer.parseInt(args[0]),
+			rounds  = args.length < 2 ? 3 : Integer.parseInt(args[1]),
+			depth   = args.length < 3 ? 8 : Integer.parseInt(args[2]);
+
+		measure(ScriptGenerator.generate(2000, 2000, 1000, depth, 4), rounds); //Warms up the JIT
+		
+		System.out.printf("%8s %8s %12s %8s %12s %8s %12s %14s%n", "size", "lines", "parse (ms)", "slope", "run (ms)", "slope", "heap (KiB)", "ns/function");
+		double lastSize = 0, lastParse = 0, lastRun = 0;
+		for(int size = 250; size <= largest; size *= 2)
+		{
+			String[] lines = ScriptGenerator.generate(size, size, size / 2, depth, 4);
+			double[] r = measure(lines, rounds);
+
+			System.out.printf("%8d %8d %12.2f %8s %12.2f %8s %12d %14.0f%n", size, lines.length, r[0], slope(lastSize, lastParse, size, r[0]),
+							  r[1], slope(lastSize, lastRun, size, r[1]), (long) r[2] / 1024, r[1] * 1e6 / size);
+			lastSize = size; lastParse = r[0]; lastRun = r[1];
+		}
+
+		System.out.println();
+		System.out.printf("%8s %12s %8s %14s%n", "pieces", "run (ms)", "slope", "ns/piece");
+		double lastPieces = 0;
+		lastRun = 0;
+		for(int pieces = 2; pieces <= 512; pieces *= 4)
+		{
+			double[] r = measure(ScriptGenerator.generate(1000, 200, 0, depth, pieces), rounds);
+			System.out.printf("%8d %12.2f %8s %14.0f%n", pieces, r[1], slope(lastPieces, lastRun, pieces, r[1]), r[1] * 1e6 / (1000.0 * pieces));
+			lastPieces = pieces; lastRun = r[1];
+		}
+	}
+
+	/**
+	 * Parses and runs a script a number of times
+	 * @return The fastest parse and run (milliseconds) and the bytes of heap the parsed script holds (the most any round saw)
+	 */
+	private static double[] measure(String[] lines, int rounds)
+	{
+		double parse = Double.MAX_VALUE, run = Double.MAX_VALUE;
+		long heap = 0;
+
+		for(int r = 0; r != rounds; r++)
+		{
+			long before = used();
+			long start = System.nanoTime();
+			Parser parser = new Parser(lines, Output.CONSOLE);
+			parse = Math.min(parse, (System.nanoTime() - start) / 1e6);
+			heap = Math.max(heap, used() - before);
+
+			Script script = parser.getScript();
+			if(script == null) throw new IllegalStateException("The generated script did not parse");
+
+			start = System.nanoTime();
+			new Interpreter(script, NONE).run();
+			run = Math.min(run, (System.nanoTime() - start) / 1e6);
+			if(parser.getScript() == null) throw new IllegalStateException(); //Keeps the parser (and its script) reachable while it is measured
+		}
+		return new double[]{parse, run, heap};
+	}
+
+	/** @return The heap in use once the garbage collector ran */
+	private static long used()
+	{
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i != 3; i++) System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/** @return The slope of log(time) against log(size) from the last size, "-" for the first */
+	private static String slope(double lastSize, double lastTime, double size, double time)
+	{
+		if(lastSize == 0 || lastTime <= 0 || time <= 0) return "-";
+		return String.format("%.2f", Math.log(time / lastTime) / Math.log(size / lastSize));
+	}
+}
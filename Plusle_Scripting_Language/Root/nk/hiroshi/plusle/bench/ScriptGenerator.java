@@ -0,0 +1,79 @@
+package nk.hiroshi.plusle.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Writes synthetic scripts of any size: a number of functions, variables and numerals, conditional statements,
+ * a depth of calls and a number of pieces in each echo. <br>
+ * The functions form chains of the given depth (each function calls the next one by name) and the main method calls
+ * the first function of each chain, so every function runs once. Each function changes a numeral and a variable,
+ * echoes some of them and owns its share of the conditional statements, which all call a small function. <br>
+ * Usage: ScriptGenerator &lt;file&gt; &lt;functions&gt; &lt;names&gt; &lt;conditionals&gt; &lt;depth&gt; [pieces]
+ * @since 19 October, 2026
+ */
+public class ScriptGenerator
+{
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length < 5)
+		{
+			System.out.println("Usage: ScriptGenerator <file> <functions> <names> <conditionals> <depth> [pieces]");
+			return;
+		}
+
+		String[] lines = generate(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+								  Integer.parseInt(args[4]), args.length < 6 ? 4 : Integer.parseInt(args[5]));
+		String file = args[0].endsWith(".plusle.nk") ? args[0] : args[0] + ".plusle.nk";
+		Files.write(Paths.get(file), Arrays.asList(lines), StandardCharsets.UTF_8);
+		System.out.println("Wrote " + lines.length + " lines to " + file);
+	}
+
+	/**
+	 * Generates a script
+	 * @param functions The number of functions (besides the one the conditional statements call)
+	 * @param names The number of variables and numerals (half of each)
+	 * @param conditionals The number of conditional statements, shared among the functions
+	 * @param depth The number of functions in each chain of calls
+	 * @param pieces The number of pieces in each echo ("text" &amp; $name &amp; ...)
+	 * @return The lines of the script
+	 */
+	public static String[] generate(int functions, int names, int conditionals, int depth, int pieces)
+	{
+		int variables = Math.max(1, names / 2), numerals = Math.max(1, names - names / 2);
+		depth = Math.max(1, depth);
+		ArrayList<String> lines = new ArrayList<String>();
+
+		lines.add("::Generated " + functions + " functions, " + names + " names, " + conditionals + " conditionals, depth " + depth);
+		for(int i = 0; i != variables; i++) lines.add("var: v" + i + " = text" + i);
+		for(int i = 0; i != numerals; i++) lines.add("num: n" + i + " = " + i);
+		for(int i = 0; i < functions; i += depth) lines.add("f" + i);
+
+		for(int i = 0; i != functions; i++)
+		{
+			lines.add("[f" + i + "]");
+			lines.add("n" + (i % numerals) + " = $n" + (i * 7 % numerals) + " + 1");
+			lines.add("v" + (i % variables) + " = \"f" + i + "\"");
+
+			StringBuilder echo = new StringBuilder("echo \"f" + i + "\"");
+			for(int p = 1; p < pieces; p++) echo.append(" & ").append(p % 2 == 0 ? "$v" + ((i + p) % variables) : "$n" + ((i + p) % numerals));
+			lines.add(echo.toString());
+
+			//Conditional statements i, i + functions, i + 2 * functions... belong to this function
+			for(int c = i; c < conditionals; c += Math.max(1, functions)) lines.add("if $n" + (c % numerals) + " < " + (numerals + functions + 1) + " leaf");
+
+			if((i + 1) % depth != 0 && i + 1 < functions) lines.add("f" + (i + 1));
+		}
+
+		lines.add("[leaf]");
+		lines.add("return \"leaf\"");
+		return lines.toArray(new String[lines.size()]);
+	}
+}
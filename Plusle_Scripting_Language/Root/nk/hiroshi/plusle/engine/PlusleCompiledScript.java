@@ -0,0 +1,68 @@
+package nk.hiroshi.plusle.engine;
+
+import java.util.Map;
+
+import javax.script.Bindings;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+
+import nk.hiroshi.plusle.runtime.Interpreter;
+import nk.hiroshi.plusle.runtime.Output;
+import nk.hiroshi.plusle.runtime.Parser;
+import nk.hiroshi.plusle.script.cmd.Script;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * A script parsed once by {@link PlusleEngine#compile(String)}. Each eval runs a new instance of the parsed script
+ * (see {@link Parser#instance()}), which starts from the declared values; nothing is parsed again. <br>
+ * Values of the global and engine bindings are set on the declared variables and numerals before the run. With
+ * {@link ScriptBindings} the engine bindings then become a view of the run's script; any other bindings get the
+ * values of the variables and numerals copied back after the run.
+ * @since 19 October, 2026
+ */
+public class PlusleCompiledScript extends CompiledScript
+{
+	private final PlusleEngine engine;
+	
+	/** The parsed script */
+	private final Parser parser;
+	
+	PlusleCompiledScript(PlusleEngine engine, Parser parser)
+	{
+		this.engine = engine;
+		this.parser = parser;
+	}
+	
+	/**
+	 * Runs the script. Errors of the run are written to the context's writer, just as the interpreter writes them
+	 * @return null (commands have no value)
+	 */
+	@Override
+	public Object eval(ScriptContext context)
+	{
+		Script script = parser.instance();
+		Bindings global = context.getBindings(ScriptContext.GLOBAL_SCOPE),
+				 bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
+		
+		if(global != null) for(Map.Entry<String, Object> e : global.entrySet()) ScriptBindings.set(script, e.getKey(), e.getValue());
+		
+		if(bindings instanceof ScriptBindings) ((ScriptBindings) bindings).attach(script);
+		else if(bindings != null) for(Map.Entry<String, Object> e : bindings.entrySet()) ScriptBindings.set(script, e.getKey(), e.getValue());
+		
+		engine.ran(script);
+		new Interpreter(script, Output.of(context.getWriter())).run();
+		
+		if(bindings != null && !(bindings instanceof ScriptBindings))
+		{
+			for(String name : script.getVariableNames()) bindings.put(name, script.getVariable(name).getValue());
+			for(String name : script.getNumeralNames())  bindings.put(name, script.getNumeral(name).getValue());
+		}
+		return null;
+	}
+	
+	@Override
+	public ScriptEngine getEngine(){return engine;}
+}
@@ -0,0 +1,180 @@
+package nk.hiroshi.plusle.engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.Invocable;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+
+import nk.hiroshi.plusle.runtime.Interpreter;
+import nk.hiroshi.plusle.runtime.Output;
+import nk.hiroshi.plusle.runtime.Parser;
+import nk.hiroshi.plusle.script.cmd.Script;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Runs Plusle scripts through javax.script (JSR-223). <br>
+ * Scripts can be compiled once and run many times ({@link Compilable}); functions of the last script run can be called
+ * by name ({@link Invocable}). Functions have no arguments, so values are given to them through the bindings, which are
+ * {@link ScriptBindings} unless other bindings are set. <br>
+ * Parse errors are thrown as ScriptExceptions; errors of a run are written to the context's writer, as the interpreter writes them.
+ * @since 19 October, 2026
+ */
+public class PlusleEngine extends AbstractScriptEngine implements Compilable, Invocable
+{
+	private final PlusleEngineFactory factory;
+	
+	/** The script of the last run */
+	private volatile Script script;
+	
+	public PlusleEngine()
+	{
+		this(new PlusleEngineFactory());
+	}
+	
+	PlusleEngine(PlusleEngineFactory factory)
+	{
+		this.factory = factory;
+		context.setBindings(createBindings(), ScriptContext.ENGINE_SCOPE);
+	}
+	
+	@Override
+	public Object eval(String script, ScriptContext context) throws ScriptException
+	{
+		return compile(script).eval(context);
+	}
+	
+	@Override
+	public Object eval(Reader reader, ScriptContext context) throws ScriptException
+	{
+		return compile(reader).eval(context);
+	}
+	
+	/**
+	 * Parses a script
+	 * @return The parsed script, which can be run any number of times
+	 * @throws ScriptException If the script can't be parsed (the message is the parser's error)
+	 */
+	@Override
+	public CompiledScript compile(String script) throws ScriptException
+	{
+		StringWriter errors = new StringWriter();
+		Parser parser = new Parser(script.split("\r?\n"), Output.of(errors));
+		if(parser.getScript() == null) throw new ScriptException(errors.toString().trim());
+		return new PlusleCompiledScript(this, parser);
+	}
+	
+	@Override
+	public CompiledScript compile(Reader script) throws ScriptException
+	{
+		StringBuilder text = new StringBuilder();
+		try
+		{
+			BufferedReader read = new BufferedReader(script);
+			for(String line = read.readLine(); line != null; line = read.readLine()) text.append(line).append('\n');
+		}
+		catch(IOException e){throw new ScriptException(e);}
+		
+		return compile(text.toString());
+	}
+	
+	@Override
+	public Bindings createBindings(){return new ScriptBindings();}
+	
+	@Override
+	public ScriptEngineFactory getFactory(){return factory;}
+	
+	/** Remembers the script of a run, for invokeFunction */
+	void ran(Script s){script = s;}
+	
+	/**
+	 * Runs a function of the last script run (the script of the engine bindings, if they are {@link ScriptBindings})
+	 * @param name The name of the function
+	 * @param args Must be empty; values are given to functions through the bindings
+	 * @return The value of the function (set by "return"), null if it has none
+	 * @throws ScriptException If arguments are given
+	 * @throws NoSuchMethodException If there is no such function (or no script has been run)
+	 */
+	@Override
+	public Object invokeFunction(String name, Object... args) throws ScriptException, NoSuchMethodException
+	{
+		if(args != null && args.length != 0) throw new ScriptException("Functions have no arguments; set their values through the bindings");
+		
+		Script s = script;
+		Bindings bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
+		if(bindings instanceof ScriptBindings && ((ScriptBindings) bindings).getScript() != null) s = ((ScriptBindings) bindings).getScript();
+		if(s == null || !s.isFunction(name)) throw new NoSuchMethodException(name);
+		
+		return new Interpreter(s, Output.of(context.getWriter())).invoke(s.getFunction(name));
+	}
+	
+	/** Scripts have no objects */
+	@Override
+	public Object invokeMethod(Object thiz, String name, Object... args)
+	{
+		throw new IllegalArgumentException("Plusle scripts have no objects");
+	}
+	
+	/**
+	 * Implements an interface with the functions of the last script run. Each method runs the function of the same name;
+	 * methods must have no parameters and return void, a String or a double (the value of the function is converted).
+	 * @return The implementation, null if the script has no function for one of the methods
+	 */
+	@Override
+	public <T> T getInterface(final Class<T> type)
+	{
+		Script s = script;
+		Bindings bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
+		if(bindings instanceof ScriptBindings && ((ScriptBindings) bindings).getScript() != null) s = ((ScriptBindings) bindings).getScript();
+		if(s == null || !type.isInterface()) return null;
+		
+		for(Method m : type.getMethods())
+		{
+			Class<?> r = m.getReturnType();
+			if(!s.isFunction(m.getName()) || m.getParameterTypes().length != 0) return null;
+			if(r != void.class && r != String.class && r != Object.class && r != double.class && r != Double.class) return null;
+		}
+		
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new InvocationHandler()
+		{
+			public Object invoke(Object proxy, Method m, Object[] args) throws Throwable
+			{
+				if(m.getDeclaringClass() == Object.class)
+				{
+					switch(m.getName())
+					{
+						case "equals":   return proxy == args[0];
+						case "hashCode": return System.identityHashCode(proxy);
+						default:         return "Plusle " + type.getName();
+					}
+				}
+				
+				Object value = invokeFunction(m.getName());
+				Class<?> r = m.getReturnType();
+				if(r == void.class) return null;
+				if(r == double.class || r == Double.class) return value == null ? 0.0 : Double.parseDouble(value.toString());
+				return value;
+			}
+		}));
+	}
+	
+	/** Scripts have no objects */
+	@Override
+	public <T> T getInterface(Object thiz, Class<T> type)
+	{
+		throw new IllegalArgumentException("Plusle scripts have no objects");
+	}
+}
@@ -0,0 +1,74 @@
+package nk.hiroshi.plusle.engine;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Creates {@link PlusleEngine}s. It is registered in META-INF/services, so 
+ * new ScriptEngineManager().getEngineByName("plusle") finds it.
+ * @since 19 October, 2026
+ */
+public class PlusleEngineFactory implements ScriptEngineFactory
+{
+	private static final String VERSION = "1.0";
+	
+	@Override
+	public String getEngineName(){return "Plusle Scripting Language";}
+	
+	@Override
+	public String getEngineVersion(){return VERSION;}
+	
+	@Override
+	public List<String> getExtensions(){return Collections.unmodifiableList(Arrays.asList("plusle.nk", "nk"));}
+	
+	@Override
+	public List<String> getMimeTypes(){return Collections.unmodifiableList(Arrays.asList("text/x-plusle"));}
+	
+	@Override
+	public List<String> getNames(){return Collections.unmodifiableList(Arrays.asList("plusle", "Plusle"));}
+	
+	@Override
+	public String getLanguageName(){return "Plusle";}
+	
+	@Override
+	public String getLanguageVersion(){return VERSION;}
+	
+	@Override
+	public Object getParameter(String key)
+	{
+		switch(key)
+		{
+			case ScriptEngine.ENGINE:           return getEngineName();
+			case ScriptEngine.ENGINE_VERSION:   return getEngineVersion();
+			case ScriptEngine.NAME:             return getNames().get(0);
+			case ScriptEngine.LANGUAGE:         return getLanguageName();
+			case ScriptEngine.LANGUAGE_VERSION: return getLanguageVersion();
+		}
+		return null; //THREADING: engines must not be shared between threads
+	}
+	
+	/** Functions have no arguments and belong to no object; a call is the name of the function */
+	@Override
+	public String getMethodCallSyntax(String obj, String m, String... args){return m;}
+	
+	@Override
+	public String getOutputStatement(String toDisplay){return "echo \"" + toDisplay + "\"";}
+	
+	@Override
+	public String getProgram(String... statements)
+	{
+		StringBuilder program = new StringBuilder();
+		for(String s : statements) program.append(s).append('\n');
+		return program.toString();
+	}
+	
+	@Override
+	public ScriptEngine getScriptEngine(){return new PlusleEngine(this);}
+}
@@ -0,0 +1,112 @@
+package nk.hiroshi.plusle.engine;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.script.Bindings;
+
+import nk.hiroshi.plusle.script.cmd.Script;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Bindings which are a view of the variables and numerals of a script: reading a name reads the Variable (a String)
+ * or the Numeral (a Double) itself, and writing it sets the value the script reads. Names the script doesn't declare
+ * are kept by the bindings. <br>
+ * Each time a compiled script runs with these bindings, they move onto the script of that run, and the values given
+ * through put are set again; they are the inputs of every run.
+ * @since 19 October, 2026
+ */
+public class ScriptBindings extends AbstractMap<String, Object> implements Bindings
+{
+	/** The script of the last run (null before the first run) */
+	private Script script;
+	
+	/** The values given through put, by name */
+	private final LinkedHashMap<String, Object> values = new LinkedHashMap<String, Object>();
+	
+	/** @return The script the bindings are a view of (null before the first run) */
+	public Script getScript(){return script;}
+	
+	/**
+	 * Makes the bindings a view of a script, setting the values given through put
+	 * @param s The script of a new run
+	 */
+	void attach(Script s)
+	{
+		script = s;
+		for(Map.Entry<String, Object> e : values.entrySet()) set(s, e.getKey(), e.getValue());
+	}
+	
+	@Override
+	public Object get(Object key)
+	{
+		if(script != null && key instanceof String)
+		{
+			if(script.isNumeral((String) key))  return script.getNumeral((String) key).getValue();
+			if(script.isVariable((String) key)) return script.getVariable((String) key).getValue();
+		}
+		return values.get(key);
+	}
+	
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return values.containsKey(key) || (script != null && key instanceof String && (script.isNumeral((String) key) || script.isVariable((String) key)));
+	}
+	
+	@Override
+	public Object put(String name, Object value)
+	{
+		if(name == null) throw new NullPointerException("name");
+		if(name.equals("")) throw new IllegalArgumentException("Empty name");
+		
+		Object previous = get(name);
+		if(script != null) set(script, name, value);
+		values.put(name, value);
+		return previous;
+	}
+	
+	/** Forgets a value given through put; the variables and numerals of the script keep their values */
+	@Override
+	public Object remove(Object key)
+	{
+		Object previous = get(key);
+		values.remove(key);
+		return previous;
+	}
+	
+	/** Forgets the values given through put */
+	@Override
+	public void clear(){values.clear();}
+	
+	/** @return The values given through put and the values of the script's variables and numerals, as they are now */
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet()
+	{
+		LinkedHashMap<String, Object> all = new LinkedHashMap<String, Object>(values);
+		if(script != null)
+		{
+			for(String name : script.getVariableNames()) all.put(name, script.getVariable(name).getValue());
+			for(String name : script.getNumeralNames())  all.put(name, script.getNumeral(name).getValue());
+		}
+		return Collections.unmodifiableMap(all).entrySet();
+	}
+	
+	/**
+	 * Sets a variable or a numeral of a script; nothing happens if the script doesn't declare the name
+	 * @param s The script
+	 * @param name The name of the variable or numeral
+	 * @param value Any value for a variable; a Number (or text holding one) for a numeral
+	 * @throws IllegalArgumentException If the value of a numeral isn't a number
+	 */
+	static void set(Script s, String name, Object value)
+	{
+		if(s.isNumeral(name)) s.getNumeral(name).setValue(value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(String.valueOf(value)));
+		else if(s.isVariable(name)) s.getVariable(name).setValue(String.valueOf(value));
+	}
+}
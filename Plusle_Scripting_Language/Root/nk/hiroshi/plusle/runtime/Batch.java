@@ -0,0 +1,225 @@
+package nk.hiroshi.plusle.runtime;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import nk.hiroshi.plusle.script.cmd.Function;
+import nk.hiroshi.plusle.script.cmd.Script;
+import nk.hiroshi.plusle.script.data.Numeral;
+import nk.hiroshi.plusle.script.data.NumeralArray;
+import nk.hiroshi.plusle.script.data.Table;
+import nk.hiroshi.plusle.script.data.Variable;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Runs a script once for each record (line) of its input, as awk does: the record is in the variable RECORD
+ * and its number (counted from 1) in the numeral NR; a script which doesn't declare them gets them. <br>
+ * The script is parsed once. Before each record every variable, numeral, numeral array, table and function
+ * is put back to its declared value in place, so nothing is parsed or linked again and the script keeps finding
+ * its names where it found them for the last record. Records are read, and text is written, through large buffers. <br>
+ * java nk.hiroshi.plusle.runtime.Batch [options] &lt;script&gt; [input file] (standard input when there is no file; see {@link #main(String[])})
+ * @since 19 October, 2026
+ */
+public final class Batch
+{
+	/** The names records are given to the script under */
+	public static final String RECORD = "RECORD", NUMBER = "NR";
+
+	/** Size of the buffers records are read and text is written through */
+	static final int BUFFER = 1 << 16;
+
+	private final Script script;
+	private final Variable record;
+	private final Numeral number;
+
+	/** The declared values, put back before each record */
+	private final String[] variables;
+	private final double[] numerals;
+	private final double[][] arrays;
+	private final Object[][] tables;
+
+	/**
+	 * Parses a script for batch runs
+	 * @param scriptFile The script
+	 * @param errors Where errors in the script are written
+	 * @throws IOException If the script can't be read or parsed
+	 */
+	public Batch(String scriptFile, Output errors) throws IOException
+	{
+		File file = new File(scriptFile);
+		List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+
+		//Declarations belong to the whole script wherever they are, so adding them last keeps the line numbers of errors
+		if(!declares(lines, "var: " + RECORD + " ")) lines.add("var: " + RECORD + " = -");
+		if(!declares(lines, "num: " + NUMBER + " ")) lines.add("num: " + NUMBER + " = 0");
+
+		script = new Parser(lines.toArray(new String[lines.size()]), errors, file.getAbsoluteFile().getParentFile()).getScript();
+		if(script == null) throw new IOException("Could not parse " + file.getName());
+
+		record = script.getVariable(RECORD);
+		number = script.getNumeral(NUMBER);
+
+		Variable[] v = script.getVariables();
+		variables = new String[v.length];
+		for(int i = 0; i != v.length; i++) variables[i] = v[i].getValue();
+
+		Numeral[] n = script.getNumerals();
+		numerals = new double[n.length];
+		for(int i = 0; i != n.length; i++) numerals[i] = n[i].getDouble();
+
+		NumeralArray[] a = script.getArrays();
+		arrays = new double[a.length][];
+		for(int i = 0; i != a.length; i++) arrays[i] = a[i].getValue().clone();
+
+		Table[] t = script.getTables();
+		tables = new Object[t.length][];
+		for(int i = 0; i != t.length; i++) tables[i] = t[i].getValue();
+	}
+
+	/** @return true if a line starts with the declaration */
+	private static boolean declares(List<String> lines, String declaration)
+	{
+		for(String line : lines) if(line.trim().startsWith(declaration)) return true;
+		return false;
+	}
+
+	/**
+	 * Runs the script for each record
+	 * @param in The records, one per line
+	 * @param out Where the script writes (it is flushed once all records ran)
+	 * @return The number of records
+	 * @throws IOException If the records can't be read
+	 */
+	public long run(Reader in, Output out) throws IOException
+	{
+		return run(in, out, 0);
+	}
+	
+	/**
+	 * Runs the script for each record, until the records end or the output is closed (the reader of a pipe has gone)
+	 * @param in The records, one per line
+	 * @param out Where the script writes
+	 * @param flush The output is flushed after this many records (0: only when its buffer is full, and once all records ran)
+	 * @return The number of records which ran
+	 * @throws IOException If the records can't be read
+	 */
+	public long run(Reader in, Output out, long flush) throws IOException
+	{
+		BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, BUFFER);
+		Interpreter interpreter = new Interpreter(script, unflushed(out));
+		long count = 0;
+
+		for(String line = reader.readLine(); line != null && !out.isClosed(); line = reader.readLine())
+		{
+			reset();
+			record.setValue(line);
+			number.setDouble(++count);
+			interpreter.run();
+			if(flush != 0 && count % flush == 0) out.flush();
+		}
+		out.flush();
+		return count;
+	}
+
+	/** Puts every value of the script back to its declared value */
+	private void reset()
+	{
+		Variable[] v = script.getVariables();
+		for(int i = 0; i != v.length; i++) v[i].setValue(variables[i]);
+
+		Numeral[] n = script.getNumerals();
+		for(int i = 0; i != n.length; i++) n[i].setDouble(numerals[i]);
+
+		NumeralArray[] a = script.getArrays();
+		for(int i = 0; i != a.length; i++)
+		{
+			double[] values = a[i].getValue();
+			if(values.length == arrays[i].length) System.arraycopy(arrays[i], 0, values, 0, values.length);
+			else a[i].setValue(arrays[i].clone());
+		}
+
+		Table[] t = script.getTables();
+		for(int i = 0; i != t.length; i++) if(t[i].size() != 0 || tables[i].length != 0) t[i].setValue(tables[i]);
+
+		for(Function f : script.getFunctions()) f.setValue(null);
+	}
+
+	/** @return The output, except that the interpreter's flush after each record does nothing */
+	private static Output unflushed(final Output out)
+	{
+		return new Output()
+		{
+			public void print(String text){out.print(text);}
+			public void println(String line){out.println(line);}
+			public boolean isClosed(){return out.isClosed();}
+		};
+	}
+
+	/**
+	 * Runs a script for each line of a file or of the standard input, writing to the standard output, so it can be used in a pipeline. <br>
+	 * java nk.hiroshi.plusle.runtime.Batch [options] &lt;script&gt; [input file] <br>
+	 * --flush=&lt;buffer|record|n&gt; When the output is written: when its buffer is full (the default), after every record or every n records <br>
+	 * --buffer=&lt;bytes&gt; The size of the output buffer (1 MiB) <br>
+	 * -q Don't write the number of records and how many ran each second to the standard error <br>
+	 * The run ends quietly once the reader of the output has gone (such as head).
+	 * @param args The options, the script and the input file
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		long flush = 0;
+		int buffer = 1 << 20, a = 0;
+		boolean quiet = false;
+		
+		for(; a < args.length && args[a].startsWith("-"); a++)
+		{
+			if(args[a].equals("-q")) quiet = true;
+			else if(args[a].equals("--flush=buffer")) flush = 0;
+			else if(args[a].equals("--flush=record")) flush = 1;
+			else if(args[a].startsWith("--flush=")) flush = Long.parseLong(args[a].substring(8));
+			else if(args[a].startsWith("--buffer=")) buffer = Integer.parseInt(args[a].substring(9));
+			else break;
+		}
+		
+		if(args.length <= a)
+		{
+			System.err.println("Usage: java nk.hiroshi.plusle.runtime.Batch [--flush=buffer|record|<n>] [--buffer=<bytes>] [-q] <script> [input file]");
+			System.exit(2);
+		}
+
+		Output errors = new Output()
+		{
+			public void print(String text){System.err.print(text);}
+			public void println(String line){System.err.println(line);}
+		};
+
+		Batch batch;
+		try{batch = new Batch(args[a], errors);}
+		catch(IOException e)
+		{
+			System.err.println(e.getMessage());
+			System.exit(1);
+			return;
+		}
+
+		Reader in = new InputStreamReader(a + 1 < args.length ? new FileInputStream(args[a + 1]) : new FileInputStream(FileDescriptor.in), StandardCharsets.UTF_8);
+		Output out = Output.of(new FileOutputStream(FileDescriptor.out).getChannel(), buffer);
+
+		long start = System.nanoTime(), records;
+		try{records = batch.run(new BufferedReader(in, Math.max(BUFFER, buffer)), out, flush);}
+		finally{in.close();}
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		if(!quiet) System.err.println(String.format("%d records in %.3f s (%.0f records/s)", records, seconds, records / seconds));
+	}
+}
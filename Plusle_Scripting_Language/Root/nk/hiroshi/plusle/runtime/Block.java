@@ -0,0 +1,147 @@
+package nk.hiroshi.plusle.runtime;
+
+import nk.hiroshi.plusle.script.cmd.Conditional;
+import nk.hiroshi.plusle.script.cmd.Function;
+import nk.hiroshi.plusle.script.cmd.HostCall;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * A block is a piece of a script that can be parsed on its own: either the main method (every line before the first function)
+ * or a function declaration followed by the lines up to the next function declaration. <br>
+ * Each block keeps the lines it was parsed from so the parser can re-read a single block when one of its lines changes. <br>
+ * Blocks are made through a {@link Builder}, in which anything not given is empty.
+ * @since 19 October, 2026
+ */
+class Block
+{
+	/** The raw lines of the block (not trimmed) */
+	final String[] lines;
+
+	/** Index of the first line of the block in the whole script (0 based) */
+	int start;
+
+	/** Script name declared in this block ("::Name"), empty when there is none */
+	final String scriptName;
+
+	/** The commands of the block and the conditional statements and host function calls that they refer to by index */
+	final String[] commands;
+	final int[] commandLines; //The line of each command, counted from the first line of the block (which is 0)
+	final Conditional[] conditions;
+	final HostCall[] calls;
+
+	/** Declarations made in the block; values are the ones given in the script */
+	final String[] variableNames, variableValues, numeralNames;
+	final double[] numeralValues;
+	final String[] arrayNames;
+	final double[][] arrayValues;
+	final String[] tableNames;
+	final String[][] tableValues; //Keys and values of each table: {key, value, key, value, ...}
+
+	/** Modules imported by the block (their parsers) and the names they are imported as */
+	final Parser[] modules;
+	final String[] aliases;
+
+	/** The function declared by this block (null for the main method) */
+	final Function function;
+
+	private Block(Builder b)
+	{
+		lines = b.lines;
+		start = b.start;
+		scriptName = b.scriptName;
+		commands = b.commands;
+		commandLines = b.commandLines;
+		conditions = b.conditions;
+		calls = b.calls;
+		variableNames = b.variableNames;
+		variableValues = b.variableValues;
+		numeralNames = b.numeralNames;
+		numeralValues = b.numeralValues;
+		arrayNames = b.arrayNames;
+		arrayValues = b.arrayValues;
+		tableNames = b.tableNames;
+		tableValues = b.tableValues;
+		modules = b.modules;
+		aliases = b.aliases;
+		function = b.function;
+	}
+
+	/** @return The index of the line following the block */
+	int end(){return start + lines.length;}
+
+	/**
+	 * Gathers the parts of a block. Parts which go together (names and their values, commands and what they refer to)
+	 * are given together, so a part can't end up in the place of another of the same type
+	 */
+	static final class Builder
+	{
+		private static final String[] NONE = {};
+
+		private final String[] lines;
+		private final int start;
+		private String scriptName = "";
+		private String[] commands = NONE;
+		private int[] commandLines = {};
+		private Conditional[] conditions = {};
+		private HostCall[] calls = {};
+		private String[] variableNames = NONE, variableValues = NONE, numeralNames = NONE;
+		private double[] numeralValues = {};
+		private String[] arrayNames = NONE;
+		private double[][] arrayValues = {};
+		private String[] tableNames = NONE;
+		private String[][] tableValues = {};
+		private Parser[] modules = {};
+		private String[] aliases = NONE;
+		private Function function;
+
+		/**
+		 * @param lines The raw lines of the block
+		 * @param start The index of the first line of the block in the whole script
+		 */
+		Builder(String[] lines, int start)
+		{
+			this.lines = lines;
+			this.start = start;
+		}
+
+		/** @param name The script name declared in the block */
+		Builder scriptName(String name){scriptName = name; return this;}
+
+		/**
+		 * @param commands The commands of the block
+		 * @param lines The line of each command, counted from the first line of the block
+		 * @param conditions The conditional statements the commands refer to
+		 * @param calls The host function calls the commands refer to
+		 */
+		Builder commands(String[] commands, int[] lines, Conditional[] conditions, HostCall[] calls)
+		{
+			this.commands = commands;
+			this.commandLines = lines;
+			this.conditions = conditions;
+			this.calls = calls;
+			return this;
+		}
+
+		/** Variables declared in the block, and their values; Parallel */
+		Builder variables(String[] names, String[] values){variableNames = names; variableValues = values; return this;}
+
+		/** Numerals declared in the block, and their values; Parallel */
+		Builder numerals(String[] names, double[] values){numeralNames = names; numeralValues = values; return this;}
+
+		/** Numeral arrays declared in the block, and their values; Parallel */
+		Builder arrays(String[] names, double[][] values){arrayNames = names; arrayValues = values; return this;}
+
+		/** Tables declared in the block, and their keys and values; Parallel */
+		Builder tables(String[] names, String[][] values){tableNames = names; tableValues = values; return this;}
+
+		/** Modules imported by the block, and the names they are imported as; Parallel */
+		Builder modules(Parser[] modules, String[] aliases){this.modules = modules; this.aliases = aliases; return this;}
+
+		/** @param function The function declared by the block (none for the main method) */
+		Builder function(Function function){this.function = function; return this;}
+
+		Block build(){return new Block(this);}
+	}
+}
@@ -0,0 +1,377 @@
+package nk.hiroshi.plusle.runtime;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import nk.hiroshi.plusle.script.cmd.Function;
+import nk.hiroshi.plusle.script.cmd.Script;
+import nk.hiroshi.plusle.script.data.Numeral;
+import nk.hiroshi.plusle.script.data.NumeralArray;
+import nk.hiroshi.plusle.script.data.Table;
+import nk.hiroshi.plusle.script.data.Variable;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Saves the state of a running script to a file at intervals, so a script which was killed resumes where it was
+ * instead of running again from the top. <br>
+ * The state is the value of every variable, numeral, numeral array, table and function, and the functions being run
+ * with the command each of them is at. The interpreter keeps those functions on a stack of its own (the frames) while it is
+ * checkpointed. A timer marks a checkpoint as due; the script's thread copies its state at the next command where it can
+ * resume (every function on the stack was run by its name or by "if"; not while "each" or "parallel each" run one)
+ * and the copy is written on the timer's thread, to a new file which then replaces the last checkpoint. <br>
+ * When the interpreter runs and the file exists, the state is read back and the script goes on from the command it was at.
+ * The file is deleted once the script ends without an error. Text which was already written is not written again.
+ * @since 19 October, 2026
+ */
+public final class Checkpoints
+{
+	/** Written at the start of a checkpoint file */
+	private static final int MAGIC = 0x504C434B; //PLCK
+
+	/** Where the checkpoints are written */
+	private final File file;
+
+	/** Milliseconds between checkpoints */
+	private final long interval;
+
+	/** Set by the timer; the script takes a checkpoint at the next command where it can resume */
+	private volatile boolean due;
+
+	/** Checkpoints written */
+	private volatile long written;
+
+	/** The frames: the function (null for the main method), its commands and the command it is at; Used by the script's thread */
+	private Function[] functions = new Function[16];
+	private String[][] codes = new String[16][];
+	private int[] pcs = new int[16];
+	private int depth;
+
+	/** The frames read from the file while they are entered again (the index of the function, -1 for the main method), null otherwise */
+	private int[] resumeFunctions, resumePcs;
+
+	/** The script being run */
+	private Script root;
+
+	/** Marks checkpoints as due and writes them */
+	private ScheduledExecutorService timer;
+
+	/**
+	 * @param file Where the checkpoints are written (and read from when the script runs again)
+	 * @param interval Milliseconds between checkpoints
+	 */
+	public Checkpoints(File file, long interval)
+	{
+		this.file = file;
+		this.interval = Math.max(1, interval);
+	}
+
+	/** @return The checkpoint file */
+	public File getFile(){return file;}
+
+	/** @return The number of checkpoints written */
+	public long count(){return written;}
+
+	/**
+	 * Called as the script starts: reads the last checkpoint into the script if there is one, and starts the timer
+	 * @param script The script
+	 * @return true if the script resumes from a checkpoint
+	 * @throws IOException If the checkpoint can't be read or was taken from another script
+	 */
+	boolean start(Script script) throws IOException
+	{
+		root = script;
+		depth = 0;
+		boolean resuming = file.exists() && restore();
+
+		timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, "Plusle Checkpoints");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		timer.scheduleAtFixedRate(new Runnable()
+		{
+			public void run(){due = true;}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+		return resuming;
+	}
+
+	/**
+	 * Called as the script ends: waits for the checkpoint being written and deletes the file if the script finished
+	 * @param completed true if the script ended without an error (its checkpoint is no longer needed)
+	 */
+	void finish(boolean completed)
+	{
+		if(timer == null) return;
+
+		timer.shutdown();
+		try{timer.awaitTermination(1, TimeUnit.MINUTES);}
+		catch(InterruptedException e){Thread.currentThread().interrupt();}
+		timer = null;
+		due = false;
+		resumeFunctions = resumePcs = null;
+
+		if(completed) file.delete();
+	}
+
+	/** Called as the main method or a function starts */
+	void enter(Function f, String[] commands)
+	{
+		if(depth == pcs.length)
+		{
+			functions = Arrays.copyOf(functions, depth * 2);
+			codes = Arrays.copyOf(codes, depth * 2);
+			pcs = Arrays.copyOf(pcs, depth * 2);
+		}
+		functions[depth] = f;
+		codes[depth] = commands;
+		pcs[depth] = 0;
+		depth++;
+	}
+
+	/** Called as the main method or a function ends */
+	void exit()
+	{
+		depth--;
+		functions[depth] = null;
+		codes[depth] = null;
+	}
+
+	/** @return true while the frames of a checkpoint are entered again */
+	boolean isResuming(){return resumeFunctions != null;}
+
+	/**
+	 * Resumes the frame which was just entered
+	 * @return The command it goes on from
+	 */
+	int resume()
+	{
+		return pcs[depth - 1] = resumePcs[depth - 1];
+	}
+
+	/**
+	 * @return The function which the frame that was just entered was running (to be entered again),
+	 * or null if it is the last frame of the checkpoint (the script then runs as usual)
+	 */
+	Function resumeCall()
+	{
+		if(depth < resumeFunctions.length) return root.getFunction(resumeFunctions[depth]);
+
+		resumeFunctions = resumePcs = null;
+		return null;
+	}
+
+	/**
+	 * Called before each command; takes a checkpoint if one is due
+	 * @param pc The index of the command
+	 */
+	void at(int pc)
+	{
+		pcs[depth - 1] = pc;
+		if(due && resumeFunctions == null) take();
+	}
+
+	/** Copies the state of the script, if it can resume from here, and writes it on the timer's thread */
+	private void take()
+	{
+		//Only functions run by their name or by "if" do nothing else once they end
+		for(int d = 0; d < depth - 1; d++)
+		{
+			String command = codes[d][pcs[d]];
+			if(!command.startsWith("if ") && command.trim().indexOf(' ') >= 0) return;
+		}
+		due = false;
+
+		final byte[] state;
+		try{state = save();}
+		catch(IOException e){throw new IllegalStateException(e);} //Written to memory
+
+		timer.execute(new Runnable()
+		{
+			public void run()
+			{
+				try
+				{
+					write(state);
+					written++;
+				}
+				catch(IOException e){System.err.println("Could not write the checkpoint: " + e.getMessage());}
+			}
+		});
+	}
+
+	/** @return The state of the script and the frames */
+	private byte[] save() throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeInt(MAGIC);
+		out.writeLong(fingerprint(root));
+
+		for(Variable v : root.getVariables()) string(out, v.getValue());
+		for(Numeral n : root.getNumerals()) out.writeDouble(n.getDouble());
+		for(NumeralArray a : root.getArrays())
+		{
+			double[] values = a.getValue();
+			out.writeInt(values.length);
+			for(double d : values) out.writeDouble(d);
+		}
+		for(Table t : root.getTables())
+		{
+			Object[] pairs = t.getValue();
+			out.writeInt(pairs.length);
+			for(int i = 0; i < pairs.length; i += 2)
+			{
+				string(out, (String) pairs[i]);
+				if(pairs[i + 1] instanceof Double){out.writeBoolean(true); out.writeDouble((Double) pairs[i + 1]);}
+				else{out.writeBoolean(false); string(out, pairs[i + 1] == null ? null : pairs[i + 1].toString());}
+			}
+		}
+
+		Function[] fns = root.getFunctions();
+		for(Function f : fns) string(out, f.getValue());
+
+		out.writeInt(depth);
+		for(int d = 0; d != depth; d++)
+		{
+			out.writeInt(index(fns, functions[d]));
+			out.writeInt(pcs[d]);
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/** Writes a checkpoint to a new file, which then replaces the last one (so there's always a whole checkpoint) */
+	private void write(byte[] state) throws IOException
+	{
+		File temporary = new File(file.getPath() + ".tmp");
+		FileOutputStream out = new FileOutputStream(temporary);
+		try
+		{
+			out.write(state);
+			out.getChannel().force(true);
+		}
+		finally{out.close();}
+
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads the checkpoint into the script
+	 * @return true if there are frames to resume
+	 */
+	private boolean restore() throws IOException
+	{
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())));
+		if(in.readInt() != MAGIC) throw new IOException(file.getName() + " is not a checkpoint");
+		if(in.readLong() != fingerprint(root)) throw new IOException(file.getName() + " is a checkpoint of another script");
+
+		for(Variable v : root.getVariables()) v.setValue(string(in));
+		for(Numeral n : root.getNumerals()) n.setDouble(in.readDouble());
+		for(NumeralArray a : root.getArrays())
+		{
+			double[] values = new double[in.readInt()];
+			for(int i = 0; i != values.length; i++) values[i] = in.readDouble();
+			a.setValue(values);
+		}
+		for(Table t : root.getTables())
+		{
+			Object[] pairs = new Object[in.readInt()];
+			for(int i = 0; i < pairs.length; i += 2)
+			{
+				pairs[i] = string(in);
+				pairs[i + 1] = in.readBoolean() ? (Object) in.readDouble() : string(in);
+			}
+			t.setValue(pairs);
+		}
+		for(Function f : root.getFunctions()) f.setValue(string(in));
+
+		int frames = in.readInt();
+		resumeFunctions = new int[frames];
+		resumePcs = new int[frames];
+		for(int d = 0; d != frames; d++)
+		{
+			resumeFunctions[d] = in.readInt();
+			resumePcs[d] = in.readInt();
+		}
+		if(frames == 0) resumeFunctions = resumePcs = null;
+		return frames != 0;
+	}
+
+	/** @return The index of the function in the script (by identity), -1 for the main method */
+	private static int index(Function[] fns, Function f)
+	{
+		for(int i = 0; i != fns.length; i++) if(fns[i] == f) return i;
+		return -1;
+	}
+
+	/** @return A hash of the names and the main method of a script, so a checkpoint is only read into the script it was taken from */
+	private static long fingerprint(Script s)
+	{
+		long h = 17;
+		for(String[] names : new String[][]{s.getRunnable(), s.getFunctionNames(), s.getVariableNames(), s.getNumeralNames(), s.getArrayNames(), s.getTableNames()})
+		{
+			h = h * 31 + names.length;
+			for(String n : names) h = h * 31 + n.hashCode();
+		}
+		return h;
+	}
+
+	/** Writes text which may be null or longer than writeUTF allows */
+	private static void string(DataOutputStream out, String s) throws IOException
+	{
+		if(s == null){out.writeInt(-1); return;}
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	private static String string(DataInputStream in) throws IOException
+	{
+		int length = in.readInt();
+		if(length < 0) return null;
+		byte[] b = new byte[length];
+		in.readFully(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Runs a script with checkpoints in &lt;script&gt;.ckpt, resuming from the last one if the file exists. <br>
+	 * java nk.hiroshi.plusle.runtime.Checkpoints &lt;script&gt; [seconds between checkpoints (10)]
+	 */
+	public static void main(String[] args)
+	{
+		if(args.length == 0)
+		{
+			System.out.println("Usage: java nk.hiroshi.plusle.runtime.Checkpoints <script> [seconds]");
+			return;
+		}
+
+		Script script = new Parser(args[0]).getScript();
+		if(script == null) return;
+
+		Checkpoints checkpoints = new Checkpoints(new File(args[0] + ".ckpt"), (long) (1000 * (args.length < 2 ? 10 : Double.parseDouble(args[1]))));
+		Interpreter interpreter = new Interpreter(script);
+		interpreter.setCheckpoints(checkpoints);
+		interpreter.run();
+	}
+}
@@ -0,0 +1,196 @@
+package nk.hiroshi.plusle.runtime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import nk.hiroshi.plusle.script.cmd.Script;
+import nk.hiroshi.plusle.script.data.Numeral;
+import nk.hiroshi.plusle.script.data.Variable;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * A debugging session of an {@link Interpreter}: breakpoints on lines, stepping into, over and out of functions,
+ * and the variables and numerals of the script while it is paused. <br>
+ * The interpreter only looks for a debugger when a function starts; without one it runs its usual loop,
+ * so a script which isn't debugged pays nothing. With one, each command first asks the debugger whether to pause,
+ * and the thread running the script waits until {@link #resume()}, a step or {@link #stop()} is called (from any other thread).
+ * The functions run by "parallel each" are not debugged.
+ * @since 19 October, 2026
+ */
+public final class Debugger
+{
+	/** Told when the script pauses */
+	public interface Listener
+	{
+		/**
+		 * Called on the thread running the script, which waits until the listener (or anything else) lets it go on
+		 * @param debugger The paused debugger
+		 */
+		void paused(Debugger debugger);
+	}
+
+	/** Thrown in the script's thread to stop it */
+	public static final class Stopped extends RuntimeException
+	{
+		private static final long serialVersionUID = 1L;
+
+		private Stopped(){super("Stopped by the debugger");}
+	}
+
+	/** What the script does until it pauses: run to a breakpoint, or pause at the next line (at any depth, at most as deep, shallower) */
+	private static final int CONTINUE = 0, INTO = 1, OVER = 2, OUT = 3;
+
+	/** Lines with a breakpoint (counted from 1) */
+	private final Set<Integer> breakpoints = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+	private final Listener listener;
+
+	/** The functions being run, main method first (only changed by the script's thread; read by others only while it is paused) */
+	private final ArrayList<String> stack = new ArrayList<String>();
+
+	/** How the script goes on, and the depth a step started at */
+	private volatile int mode, depth;
+
+	private volatile boolean stopped;
+
+	/** Where the script is paused (script is null while it runs) */
+	private boolean paused;
+	private int line;
+	private Script script;
+
+	/**
+	 * @param listener Told when the script pauses
+	 * @param step true to pause on the first line, false to run to the first breakpoint
+	 */
+	public Debugger(Listener listener, boolean step)
+	{
+		this.listener = listener;
+		mode = step ? INTO : CONTINUE;
+	}
+
+	/** @param line A line to pause on (counted from 1) */
+	public void setBreakpoint(int line){breakpoints.add(line);}
+
+	/** @param line A line not to pause on any more */
+	public void clearBreakpoint(int line){breakpoints.remove(line);}
+
+	/** @return true if the line has a breakpoint */
+	public boolean isBreakpoint(int line){return breakpoints.contains(line);}
+
+	/** Goes on until a breakpoint (this and the steps only do anything while the script is paused) */
+	public synchronized void resume(){go(CONTINUE);}
+
+	/** Pauses at the next line, which is the first line of a function the line runs */
+	public synchronized void stepInto(){go(INTO);}
+
+	/** Pauses at the next line of the function which is paused (or of the function which called it, once it ends) */
+	public synchronized void stepOver(){go(OVER);}
+
+	/** Pauses once the function which is paused ends, at the next line of the function which called it */
+	public synchronized void stepOut(){go(OUT);}
+
+	/** Stops the script (at the next line it runs); the interpreter writes that it was stopped */
+	public synchronized void stop()
+	{
+		stopped = true;
+		paused = false;
+		notifyAll();
+	}
+
+	/** Lets the paused script go on; ignored while it runs (the stack it would step from is changing) */
+	private void go(int mode)
+	{
+		if(!paused) return;
+		this.mode = mode;
+		depth = stack.size();
+		paused = false;
+		notifyAll();
+	}
+
+	/** @return true while the script is paused */
+	public synchronized boolean isPaused(){return paused;}
+
+	/** @return The line the script is paused on (counted from 1; 0 for a command which wasn't parsed from a line) */
+	public synchronized int getLine(){return line;}
+
+	/** @return The functions being run where the script is paused, from the main method to the paused function; Empty while it runs */
+	public synchronized String[] getCallStack(){return paused ? stack.toArray(new String[stack.size()]) : new String[0];}
+
+	/** @return The values of the variables of the script (or module) which is paused, by name; Empty while it runs */
+	public synchronized Map<String, String> getVariables()
+	{
+		Map<String, String> values = new LinkedHashMap<String, String>();
+		if(paused)
+		{
+			String[] names = script.getVariableNames();
+			Variable[] variables = script.getVariables();
+			for(int i = 0; i != names.length; i++) values.put(names[i], variables[i].getValue());
+		}
+		return values;
+	}
+
+	/** @return The values of the numerals of the script (or module) which is paused, by name; Empty while it runs */
+	public synchronized Map<String, Double> getNumerals()
+	{
+		Map<String, Double> values = new LinkedHashMap<String, Double>();
+		if(paused)
+		{
+			String[] names = script.getNumeralNames();
+			Numeral[] numerals = script.getNumerals();
+			for(int i = 0; i != names.length; i++) values.put(names[i], numerals[i].getDouble());
+		}
+		return values;
+	}
+
+	/** Called as the main method or a function starts */
+	void enter(String function){stack.add(function);}
+
+	/** Called as the main method or a function ends */
+	void exit(){stack.remove(stack.size() - 1);}
+
+	/**
+	 * Called before each command. Pauses the script's thread if the line has a breakpoint or a step ends on it
+	 * @param line The line of the command (counted from 1)
+	 * @param script The script the command reads its names from
+	 * @throws Stopped If the debugger was stopped
+	 */
+	void line(int line, Script script)
+	{
+		if(stopped) throw new Stopped();
+
+		boolean pause;
+		switch(mode)
+		{
+			case INTO: pause = true; break;
+			case OVER: pause = stack.size() <= depth; break;
+			case OUT:  pause = stack.size() < depth; break;
+			default:   pause = false;
+		}
+		if(pause || breakpoints.contains(line)) suspend(line, script);
+	}
+
+	/** Waits in the script's thread until the script may go on */
+	private synchronized void suspend(int line, Script script)
+	{
+		this.line = line;
+		this.script = script;
+		paused = true;
+		listener.paused(this);
+
+		boolean interrupted = false;
+		while(paused && !stopped)
+		{
+			try{wait();}
+			catch(InterruptedException e){interrupted = true; stopped = true;}
+		}
+		this.script = null;
+		if(interrupted) Thread.currentThread().interrupt();
+		if(stopped) throw new Stopped();
+	}
+}
@@ -0,0 +1,147 @@
+package nk.hiroshi.plusle.runtime;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+
+import nk.hiroshi.plusle.script.cmd.HostCall;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * The Java functions that scripts may call ("call name arguments"). Functions are registered by the host before
+ * scripts are parsed; the parser finds each call's function once, so calls cost a handle invocation when they run. <br>
+ * Parameters must be numbers (any primitive number type, given a double) or text (String, CharSequence or Object);
+ * results may be numbers, text (anything is converted with toString) or void (which gives 0). <br>
+ * The methods of java.lang.Math are registered from the start (Math.sqrt, Math.max, ...).
+ * @since 19 October, 2026
+ */
+public final class HostFunctions
+{
+	/** The registered functions by name */
+	private static final ConcurrentHashMap<String, Host> functions = new ConcurrentHashMap<String, Host>();
+	
+	static
+	{
+		register(Math.class);
+	}
+	
+	private HostFunctions(){}
+	
+	/**
+	 * Registers a static method
+	 * @param name The name scripts call it by
+	 * @param method The method (it must be accessible)
+	 * @throws IllegalAccessException If the method isn't accessible
+	 * @throws IllegalArgumentException If the method isn't static or its parameters or result can't be used by scripts
+	 */
+	public static void register(String name, Method method) throws IllegalAccessException
+	{
+		if(!Modifier.isStatic(method.getModifiers())) throw new IllegalArgumentException(name + " is not static");
+		functions.put(name, new Host(normalize(name, MethodHandles.lookup().unreflect(method)), method));
+	}
+	
+	/**
+	 * Registers a method handle
+	 * @param name The name scripts call it by
+	 * @param handle The function
+	 * @throws IllegalArgumentException If the parameters or result of the handle can't be used by scripts
+	 */
+	public static void register(String name, MethodHandle handle)
+	{
+		functions.put(name, new Host(normalize(name, handle), null));
+	}
+	
+	/**
+	 * Registers the public static methods of a class as "Class.method" (such as Math.sqrt). Of methods with the same name,
+	 * the one taking only doubles is kept; methods scripts can't use are skipped
+	 * @param type The class
+	 */
+	public static void register(Class<?> type)
+	{
+		for(Method m : type.getMethods())
+		{
+			if(!Modifier.isStatic(m.getModifiers())) continue;
+			
+			String name = type.getSimpleName() + "." + m.getName();
+			Host registered = functions.get(name);
+			if(registered != null && registered.method != null && registered.method.getDeclaringClass() == type && !doubles(m)) continue;
+			
+			try{register(name, m);}
+			catch(IllegalAccessException e){continue;}
+			catch(IllegalArgumentException e){continue;}
+		}
+	}
+	
+	/** Forgets a function (scripts parsed afterwards can't call it) */
+	public static void unregister(String name){functions.remove(name);}
+	
+	/** @return true if a function is registered under the name */
+	public static boolean isRegistered(String name){return functions.containsKey(name);}
+	
+	/**
+	 * Creates a call of a registered function
+	 * @param name The name of the function
+	 * @param arguments The arguments as written in the script
+	 * @return The call
+	 * @throws IllegalArgumentException If there is no such function, or the number of arguments is wrong
+	 */
+	static HostCall call(String name, String[] arguments)
+	{
+		Host host = functions.get(name);
+		if(host == null) throw new IllegalArgumentException("No host function " + name);
+		
+		int parameters = host.handle.type().parameterCount();
+		if(parameters != arguments.length) throw new IllegalArgumentException(name + " takes " + parameters + " arguments");
+		
+		return new HostCall(name, host.handle, host.method, arguments);
+	}
+	
+	/**
+	 * Changes a function's number parameters and result to double (void results give 0)
+	 * @throws IllegalArgumentException If a parameter isn't a number or text
+	 */
+	private static MethodHandle normalize(String name, MethodHandle handle)
+	{
+		MethodType type = handle.type();
+		Class<?>[] parameters = type.parameterArray();
+		for(int i = 0; i != parameters.length; i++)
+		{
+			if(number(parameters[i])) parameters[i] = double.class;
+			else if(!parameters[i].isAssignableFrom(String.class)) throw new IllegalArgumentException(name + ": parameters must be numbers or text");
+		}
+		
+		Class<?> result = type.returnType();
+		if(result == void.class || number(result)) result = double.class;
+		else if(result.isPrimitive()) throw new IllegalArgumentException(name + ": the result must be a number or an object");
+		
+		return MethodHandles.explicitCastArguments(handle, MethodType.methodType(result, parameters));
+	}
+	
+	/** @return true for the primitive number types */
+	private static boolean number(Class<?> type){return type.isPrimitive() && type != boolean.class && type != char.class && type != void.class;}
+	
+	/** @return true if every parameter of a method is a double */
+	private static boolean doubles(Method m)
+	{
+		for(Class<?> p : m.getParameterTypes()) if(p != double.class) return false;
+		return true;
+	}
+	
+	/** A registered function */
+	private static class Host
+	{
+		private final MethodHandle handle;
+		private final Method method;
+		
+		private Host(MethodHandle handle, Method method)
+		{
+			this.handle = handle;
+			this.method = method;
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package nk.hiroshi.plusle.runtime;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import nk.hiroshi.plusle.script.cmd.Condition;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Shares what parsed scripts hold that never changes, across every script of the JVM: names, literals and lines are interned,
+ * the arrays of commands, lines and names are looked up by their contents and parsed conditions by their text, so a function
+ * written the same way in a thousand scripts keeps one body. <br>
+ * What is shared is held weakly; once no script uses it, it is collected and forgotten. Nothing which is shared may be changed,
+ * which holds for everything the parser makes (commands and names are only ever read, and a condition only remembers
+ * where it last found its names, by the array of names they were found in). <br>
+ * {@link #report()} tells how much was shared.
+ * @since 19 October, 2026
+ */
+public final class Interner
+{
+	/** false to keep everything the parser makes to itself (to compare) */
+	private static volatile boolean enabled = true;
+
+	/** The shared arrays and conditions, by their contents */
+	private static final ConcurrentHashMap<Key, Key> shared = new ConcurrentHashMap<Key, Key>();
+
+	/** Arrays and conditions which were collected, to be removed */
+	private static final ReferenceQueue<Object> collected = new ReferenceQueue<Object>();
+
+	/** Strings, arrays and conditions looked up, found already shared, and the bytes (about) they would have taken */
+	private static final LongAdder strings = new LongAdder(), sharedStrings = new LongAdder(),
+								   lookups = new LongAdder(), sharedArrays = new LongAdder(), saved = new LongAdder();
+
+	private Interner(){}
+
+	/** @param enabled false to stop sharing what is parsed from now on */
+	public static void setEnabled(boolean enabled){Interner.enabled = enabled;}
+
+	/** @return true if what is parsed is shared */
+	public static boolean isEnabled(){return enabled;}
+
+	/** @return The shared copy of a string */
+	static String string(String s)
+	{
+		if(!enabled || s == null) return s;
+
+		String shared = s.intern();
+		strings.increment();
+		if(shared != s)
+		{
+			sharedStrings.increment();
+			saved.add(40 + s.length());
+		}
+		return shared;
+	}
+
+	/** @return The shared copy of an array of strings, whose strings are shared too */
+	static String[] strings(String[] a)
+	{
+		if(!enabled) return a;
+
+		int bytes = 16 + 4 * a.length;
+		for(String s : a) if(s != null) bytes += 40 + s.length();
+
+		String[] shared = canonical(new Key(a, null, Arrays.hashCode(a)), bytes);
+		if(shared == a) for(int i = 0; i != a.length; i++) a[i] = string(a[i]); //The first of its kind: its strings are shared one by one (equal strings keep the key equal)
+		return shared;
+	}
+
+	/** @return The shared copy of an array of numbers */
+	static int[] ints(int[] a)
+	{
+		if(!enabled) return a;
+		return canonical(new Key(a, null, Arrays.hashCode(a) * 31 + 1), 16 + 4 * a.length);
+	}
+
+	/** @return The shared copy of a parsed condition, the first one parsed from the same text */
+	static Condition condition(Condition c)
+	{
+		if(!enabled || c == null) return c;
+
+		String text = c.toString();
+		return canonical(new Key(c, text, text.hashCode()), 48 + 2 * text.length());
+	}
+
+	/**
+	 * @param key The key of an array or condition
+	 * @param bytes About how many bytes it takes
+	 * @return The one which was shared first with the same contents, or the one of the key if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T canonical(Key key, int bytes)
+	{
+		for(Object k; (k = collected.poll()) != null;) shared.remove(k);
+		lookups.increment();
+
+		while(true)
+		{
+			Key existing = shared.putIfAbsent(key, key);
+			if(existing == null) return (T) key.get();
+
+			Object first = existing.get();
+			if(first != null)
+			{
+				sharedArrays.increment();
+				saved.add(bytes);
+				return (T) first;
+			}
+			shared.remove(existing, existing); //Collected, but not yet removed
+		}
+	}
+
+	/**
+	 * @return How much was shared: strings, and arrays and conditions, looked up, how many were already shared, how many are held now
+	 * and about how many bytes the copies which were dropped took
+	 */
+	public static String report()
+	{
+		return String.format("Strings: %d interned, %d shared%n" +
+							 "Arrays and conditions: %d looked up, %d shared, %d held%n" +
+							 "Saved:   about %.1f MiB%n",
+							 strings.sum(), sharedStrings.sum(), lookups.sum(), sharedArrays.sum(), shared.size(), saved.sum() / 1048576.0);
+	}
+
+	/** An array or condition held weakly, equal to any other key holding an array with the same contents or a condition with the same text */
+	private static final class Key extends WeakReference<Object>
+	{
+		/** The text of a condition (null for an array) */
+		private final String text;
+		private final int hash;
+
+		private Key(Object o, String text, int hash)
+		{
+			super(o, collected);
+			this.text = text;
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode(){return hash;}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if(o == this) return true;
+			if(!(o instanceof Key) || ((Key) o).hash != hash) return false;
+			if(text != null || ((Key) o).text != null) return text != null && text.equals(((Key) o).text);
+
+			Object a = get(), b = ((Key) o).get();
+			if(a == null || b == null || a.getClass() != b.getClass()) return false;
+			if(a instanceof int[]) return Arrays.equals((int[]) a, (int[]) b);
+			return Arrays.equals((Object[]) a, (Object[]) b);
+		}
+	}
+}
@@ -1,11 +1,21 @@
 package nk.hiroshi.plusle.runtime;
 
+import java.lang.invoke.MethodHandle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
 import javax.swing.JTextArea;
 
 import nk.hiroshi.plusle.script.cmd.Conditional;
+import nk.hiroshi.plusle.script.cmd.Expression;
 import nk.hiroshi.plusle.script.cmd.Function;
+import nk.hiroshi.plusle.script.cmd.HostCall;
 import nk.hiroshi.plusle.script.cmd.Script;
 import nk.hiroshi.plusle.script.data.Numeral;
+import nk.hiroshi.plusle.script.data.NumeralArray;
+import nk.hiroshi.plusle.script.data.Table;
+import nk.hiroshi.plusle.script.data.Variable;
 
 /* This file is part of Plusle Scripting Language *
  * Copyright (C) 2014-2015 Ryan Kerr              *
@@ -19,18 +29,48 @@ import nk.hiroshi.plusle.script.data.Numeral;
  * @author Ryan Kerr
  * @since 11 January, 2015
  */
-public class Interpreter 
+public class Interpreter implements Runnable
 {
 	/** API Command References 
 	 *	echo:   Println to output
 	 *  prompt: Print   to output
 	 *  return: Set value of a function
 	 *  if:     Run conditional statement
+	 *  get:    Print system property, or read a value of a table into a variable/numeral
+	 *  put:      Set a value of a table
+	 *  remove:   Remove a key from a table
+	 *  contains: Set a numeral to 1 if a table holds a key (0 if not)
+	 *  each:     Run a function for each key of a table, or for each value of a numeral array
+	 *  parallel: Run a function for each value of a numeral array on all cores ("parallel each"). The workers run in frames of their own
+	 *            (see Script.fork) but share the numeral arrays and tables, which they may only read: put, remove or a numeral array
+	 *            statement in a worker stops the script with an error
+	 *  call:     Run a host (Java) function, discarding its result
 	 */
-	private String[] cmd = {"echo", "prompt", "return", "if", "write", "copy", "read", "get"};
+	private String[] cmd = {"echo", "prompt", "return", "if", "write", "copy", "read", "get", "put", "remove", "contains", "each", "parallel", "call"};
+	
+	/** The script being run (while a function runs, the script the function belongs to) */
+	private Script script;
+	
+	/** Where text is written */
+	private Output output = Output.CONSOLE;
+	
+	/** Records what the interpreter does (null when it isn't traced) */
+	private Trace trace;
+	
+	/** The debugging session (null when the script isn't debugged) */
+	private Debugger debugger;
+	
+	/** Saves the state of the script at intervals (null when it isn't checkpointed) */
+	private Checkpoints checkpoints;
+	
+	/** true for the interpreters forked for "parallel each", which may not change numeral arrays or tables */
+	private boolean worker;
 	
-	private final Script script;
-	private JTextArea textArea = null;
+	/** true if commands run through instrumented() (the script is debugged or checkpointed) */
+	private boolean instrumented;
+	
+	/** The stack arithmetic expressions are evaluated on (grown for deeper expressions) */
+	private double[] stack = new double[16];
 	
 	/**
 	 * Creates an interpreter for a script; All variables, functions, and numerals are referenced as commands
@@ -47,29 +87,126 @@ public class Interpreter
 	 * @param output The GUI Component to write text to
 	 */
 	public Interpreter(Script s, JTextArea output)
+	{
+		this(s, Output.of(output));
+	}
+	
+	/**
+	 * Creates an interpreter for a script with a given output
+	 * @param s The script to run
+	 * @param output Where text is written
+	 */
+	public Interpreter(Script s, Output output)
 	{
 		this(s);
-		textArea = output;
+		this.output = output;
 	}
 	
 	/**
 	 * Reads each command and sends it to be executed. Only works with a script.
 	 * If a script is null (ie. The script failed to be parsed), nothing happens.
 	 */
+	@Override
 	public void run()
+	{
+		long start = System.nanoTime();
+		boolean completed = false;
+		try
+		{
+			if(script != null)
+			{
+				if(checkpoints != null) checkpoints.start(script);
+				if(!instrumented) for(String c : script.getRunnable()) exec(c, null);
+				else instrumented(script.getRunnable(), script.getLines(), 0, null);
+				completed = true;
+			}
+		}
+		catch(Debugger.Stopped e)
+		{
+			echo(e.getMessage());
+		}
+		catch(StackOverflowError e)
+		{
+			error("Stack Overflow Error", true);
+		}
+		catch(Exception e)
+		{
+			error(e.getMessage(), false);
+		}
+		finally
+		{
+			if(checkpoints != null) checkpoints.finish(completed);
+			output.flush();
+			Metrics.ran(System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * Runs a single function of the script, as a command naming it would. Errors are written just as run() writes them
+	 * @param f The function to run
+	 * @return The value of the function (set by "return")
+	 */
+	public String invoke(Function f)
 	{
 		try
 		{
-			if(script != null) for(String c : script.getRunnable()) exec(c, null);
+			runFunction(f);
+		}
+		catch(Debugger.Stopped e)
+		{
+			echo(e.getMessage());
 		}
 		catch(StackOverflowError e)
 		{
-			echo("Error: Stack Overflow Error");
+			error("Stack Overflow Error", true);
 		}
 		catch(Exception e)
 		{
-			echo("Error: " + e.getMessage());
+			error(e.getMessage(), false);
 		}
+		finally
+		{
+			output.flush();
+		}
+		return f.getValue();
+	}
+	
+	/**
+	 * Traces the interpreter (and the interpreters it forks for "parallel each")
+	 * @param trace The trace to record to, null to stop tracing
+	 */
+	public void setTrace(Trace trace){this.trace = trace;}
+	
+	/**
+	 * Debugs the interpreter. Set it before the script runs; the interpreters forked for "parallel each" aren't debugged
+	 * @param debugger The debugging session, null to run without one
+	 */
+	public void setDebugger(Debugger debugger)
+	{
+		this.debugger = debugger;
+		instrumented = debugger != null || checkpoints != null;
+	}
+	
+	/**
+	 * Checkpoints the script: run() resumes from the last checkpoint if there is one. Set it before the script runs
+	 * @param checkpoints Where and how often the state of the script is saved, null to run without checkpoints
+	 */
+	public void setCheckpoints(Checkpoints checkpoints)
+	{
+		this.checkpoints = checkpoints;
+		instrumented = debugger != null || checkpoints != null;
+	}
+	
+	/**
+	 * Writes an error which stopped the script, counts it and records it if the interpreter is traced
+	 * @param message The error message
+	 * @param overflow true for a StackOverflowError
+	 */
+	private void error(String message, boolean overflow)
+	{
+		Metrics.failed(overflow);
+		echo("Error: " + message);
+		if(trace != null) trace.error(message == null ? "null" : message);
 	}
 	
 	/**
@@ -78,9 +215,97 @@ public class Interpreter
 	 */
 	private void runFunction(Function f)
 	{
-		for(String c : f.getRunnable()) exec(c, f);
+		//Functions of imported modules read the names of their own module
+		Script caller = script;
+		script = f.getParent();
+		if(trace != null) trace.enter(f.getName());
+		try
+		{
+			if(!instrumented) for(String c : f.getRunnable()) exec(c, f);
+			else instrumented(f.getRunnable(), f.getLines(), f.getLine(), f);
+		}
+		finally
+		{
+			script = caller;
+			if(trace != null) trace.exit(f.getName());
+		}
+	}
+
+	/**
+	 * The loop of run() and runFunction() while the script is debugged or checkpointed: the debugger sees each line before it runs,
+	 * and the checkpoints keep the frames (resuming a frame from a checkpoint enters the function it was running again)
+	 * @param commands The commands to run
+	 * @param lines The line of each command, counted from the first line
+	 * @param first The first line (0 for the main method)
+	 * @param f The function being run (null for the main method)
+	 */
+	private void instrumented(String[] commands, int[] lines, int first, Function f)
+	{
+		if(debugger != null) debugger.enter(f == null ? "main" : f.getName());
+		if(checkpoints != null) checkpoints.enter(f, commands);
+		try
+		{
+			int i = 0;
+			if(checkpoints != null && checkpoints.isResuming())
+			{
+				i = checkpoints.resume();
+				Function call = checkpoints.resumeCall();
+				if(call != null){runFunction(call); i++;}
+			}
+			
+			for(; i < commands.length; i++)
+			{
+				if(checkpoints != null) checkpoints.at(i);
+				if(debugger != null) debugger.line(first + lines[i], script);
+				exec(commands[i], f);
+			}
+		}
+		finally
+		{
+			if(checkpoints != null) checkpoints.exit();
+			if(debugger != null) debugger.exit();
+		}
 	}
 
+	/**
+	 * Runs a function for each value of a numeral array in a range
+	 * @param array The name of the array
+	 * @param numeral The numeral which holds the value while the function runs
+	 * @param function The function to run
+	 * @param total A numeral to watch (may be null)
+	 * @param from The first index
+	 * @param to The index following the last one
+	 * @return How much the total numeral changed (0 when there is none)
+	 */
+	double each(String array, String numeral, String function, String total, int from, int to)
+	{
+		NumeralArray values = script.getArray(array);
+		Numeral value = script.getNumeral(numeral);
+		Function f = script.getFunction(function);
+		double start = total == null ? 0.0 : script.getNumeral(total).getDouble();
+		
+		for(int i = from; i < to; i++)
+		{
+			value.setDouble(values.get(i));
+			runFunction(f);
+		}
+		
+		return total == null ? 0.0 : script.getNumeral(total).getDouble() - start;
+	}
+	
+	/**
+	 * Creates an interpreter for a frame of this interpreter's script, which writes to the same output
+	 * @param frame The frame (see {@link Script#fork()})
+	 * @return The interpreter
+	 */
+	Interpreter fork(Script frame)
+	{
+		Interpreter fork = new Interpreter(frame, output);
+		fork.trace = trace;
+		fork.worker = true;
+		return fork;
+	}
+	
 	/**
 	 * 
 	 * @param cmd Command to be interpreted
@@ -101,16 +326,25 @@ public class Interpreter
 					case 4:
 						if(3 <= split.length && split[1].equals("="))
 						{
-							String extra = "";
-						
-							for(int i = 2; i!= split.length; i++) extra += split[i] + " ";
-							extra = extra.trim();
-				
-							script.getVariable(split[0]).setValue(print(extra));
+							String extra = cmd.substring(split[0].length() + split[1].length() + 2).trim();
+							String[] terms = extra.split(" & ");
+							Variable variable = script.getVariable(split[0]);
+							
+							//"name = $name & ..." only adds to the end of the variable instead of printing it again
+							if(1 < terms.length && terms[0].trim().equals("$" + split[0])) variable.append(print(terms, 1));
+							else variable.setValue(print(extra));
+							
+							if(trace != null) trace.write(split[0], variable.length());
 						}
 						break;
 					case 8:
-						if(split.length == 3 && getType(split[2]) == 10)
+						Expression expression;
+						if(3 <= split.length && split[1].equals("=") && (expression = Expression.of(cmd.substring(split[0].length() + 3))) != null) //n = <expression>
+						{
+							if(stack.length < expression.getDepth()) stack = new double[expression.getDepth()];
+							script.getNumeral(split[0]).setDouble(expression.evaluate(script, stack));
+						}
+						else if(split.length == 3 && getType(split[2]) == 10)
 						{
 							switch(operation(split[1]))
 							{
@@ -128,6 +362,21 @@ public class Interpreter
 								case 1: Numeral.subtract(script.getNumeral(split[0]), script.getNumeral(split[0]), new Numeral("sub", Double.parseDouble(split[2]))); break;
 							}
 						}
+						else if(split.length == 3 && split[1].equals("=") && getType(split[2]) == 34) //n = $array[i]
+						{
+							script.getNumeral(split[0]).setDouble(number(split[2]));
+						}
+						else if(split.length == 4 && split[1].equals("=") && getType(split[3]) == 34) //n = sum $array
+						{
+							NumeralArray array = script.getArray(arrayName(split[3]));
+							switch(split[2])
+							{
+								case "sum":    script.getNumeral(split[0]).setDouble(array.sum()); break;
+								case "min":    script.getNumeral(split[0]).setDouble(array.min()); break;
+								case "max":    script.getNumeral(split[0]).setDouble(array.max()); break;
+								case "length": script.getNumeral(split[0]).setDouble(array.length()); break;
+							}
+						}
 						else if(split.length == 5 && split[1].equals("=") && getType(split[0]) == 8)
 						{
 							Numeral a = script.getNumeral(split[0]);
@@ -149,6 +398,32 @@ public class Interpreter
 							}
 									
  						}
+						if(trace != null) trace.write(split[0], script.getNumeral(split[0]).getDouble());
+						break;
+					case 32: //Numeral array statements
+						NumeralArray array = script.getArray(arrayName(split[0]));
+						if(split.length != 3) break;
+						mayChange(arrayName(split[0]));
+						
+						if(split[1].equals("=") && split[0].endsWith("]")) array.set(index(split[0]), number(split[2])); //array[i] = x
+						else if(getType(split[2]) == 34 && !split[2].endsWith("]")) //array + $other
+						{
+							switch(operation(split[1]))
+							{
+								case 0: array.add(script.getArray(arrayName(split[2])), 1.0); break;
+								case 1: array.add(script.getArray(arrayName(split[2])), -1.0); break;
+							}
+						}
+						else
+						{
+							switch(operation(split[1]))
+							{
+								case 0: array.add(number(split[2])); break;
+								case 1: array.add(-number(split[2])); break;
+								case 2: array.scale(number(split[2])); break;
+								case 3: array.scale(1.0 / number(split[2])); break;
+							}
+						}
 						break;
 					case 16: runFunction(script.getFunction(script.getFunctionIndex(cmd))); break;
 					case 24: 
@@ -158,17 +433,164 @@ public class Interpreter
 			case 1: echo(print(cmd.substring(7))); break;
 			case 2: if(fnc != null) fnc.setValue(print(cmd.substring("return ".length()))); break;
 			case 3: 
-				Conditional c = script.getCondition(Integer.parseInt(cmd.split(" ")[1]));
+				int index = Integer.parseInt(cmd.split(" ")[1]);
+				Conditional c = fnc != null ? fnc.getCondition(index) : script.getCondition(index);
 				String runnable = c.getRunnable()[0];
+				if(trace != null) trace.branch(c.getCondition(), c.isTrue());
 				if(script.isFunction(runnable)) runFunction(script.getFunction(runnable));
 				break;
 			case 7: 
-				if(cmd.split(" ").length == 2) echo(System.getProperty(cmd.split(" ")[1]));
+				if(split.length == 2) echo(System.getProperty(split[1]));
+				else if(split.length == 4 && script.isTable(split[1])) //get <table> <key> <variable or numeral>
+				{
+					Object value = script.getTable(split[1]).get(key(split[2]));
+					if(script.isVariable(split[3])) script.getVariable(split[3]).setValue(value == null ? "" : value.toString());
+					else if(script.isNumeral(split[3])) script.getNumeral(split[3]).setValue(value instanceof Double ? (Double) value : 0.0);
+				}
+				break;
+			case 8: //put <table> <key> <value>
+				if(3 < split.length && script.isTable(split[1]) && mayChange(split[1]))
+					script.getTable(split[1]).put(key(split[2]), tableValue(cmd.substring(split[0].length() + split[1].length() + split[2].length() + 3)));
+				break;
+			case 9: //remove <table> <key>
+				if(split.length == 3 && script.isTable(split[1]) && mayChange(split[1])) script.getTable(split[1]).remove(key(split[2]));
+				break;
+			case 10: //contains <table> <key> <numeral>
+				if(split.length == 4 && script.isTable(split[1]) && script.isNumeral(split[3]))
+					script.getNumeral(split[3]).setDouble(script.getTable(split[1]).contains(key(split[2])) ? 1.0 : 0.0);
+				break;
+			case 11: 
+				if(split.length == 4 && script.isArray(split[1]) && script.isNumeral(split[2]) && script.isFunction(split[3])) //each <array> <numeral> <function>
+				{
+					each(split[1], split[2], split[3], null, 0, script.getArray(split[1]).length());
+					break;
+				}
+				
+				//each <table> <key variable> <value variable or numeral> <function>
+				if(split.length == 5 && script.isTable(split[1]) && script.isVariable(split[2]) && script.isFunction(split[4]))
+				{
+					Table table = script.getTable(split[1]);
+					Function each = script.getFunction(split[4]);
+					
+					for(String key : table.keys())
+					{
+						Object value = table.get(key);
+						if(value == null) continue; //Removed by an earlier call
+						
+						script.getVariable(split[2]).setValue(key);
+						if(script.isVariable(split[3])) script.getVariable(split[3]).setValue(value.toString());
+						else if(script.isNumeral(split[3])) script.getNumeral(split[3]).setValue(value instanceof Double ? (Double) value : 0.0);
+						runFunction(each);
+					}
+				}
+				break;
+			case 12: //parallel each <array> <numeral> <function> [<numeral to add up>]
+				if((split.length == 5 || split.length == 6) && split[1].equals("each") && script.isArray(split[2]) && script.isNumeral(split[3]) && script.isFunction(split[4]))
+				{
+					String total = split.length == 6 && script.isNumeral(split[5]) ? split[5] : null;
+					int length = script.getArray(split[2]).length();
+					ForkJoinPool pool = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+					
+					double sum = new ParallelEach(this, script, split[2], split[3], split[4], total, 0, length, Math.max(1, length / (pool.getParallelism() * 8))).invoke();
+					if(total != null) script.getNumeral(total).setDouble(script.getNumeral(total).getDouble() + sum);
+				}
+				break;
+			case 13: //call <index> [name]
+				HostCall call = hostCall(split[1], fnc);
+				if(split.length == 2) call(call);
+				else if(script.isNumeral(split[2]))
+				{
+					Object value = call.isNumeric() ? null : call(call);
+					script.getNumeral(split[2]).setDouble(call.isNumeric() ? callNumber(call) : value instanceof Number ? ((Number) value).doubleValue() : 0.0);
+					if(trace != null) trace.write(split[2], script.getNumeral(split[2]).getDouble());
+				}
+				else if(script.isVariable(split[2]))
+				{
+					Object value = call(call);
+					script.getVariable(split[2]).setValue(value == null ? "" : value.toString());
+					if(trace != null) trace.write(split[2], script.getVariable(split[2]).length());
+				}
 				break;
 		}
 		// Keeping track of all these cases and switch statements has been a nightmare, that is, if I could sleep... (2:13 AM January 16th, 2015)
 	}
 	
+	/**
+	 * Checks that a numeral array or table may be changed: the workers of "parallel each" share them, unguarded, so they may only read them
+	 * @param name The name of the array or table
+	 * @return true
+	 * @throws IllegalStateException In a worker of "parallel each"
+	 */
+	private boolean mayChange(String name)
+	{
+		if(worker) throw new IllegalStateException(name + " can't be changed inside parallel each (its workers share numeral arrays and tables)");
+		return true;
+	}
+	
+	/**
+	 * Finds a host function call of the function running (or of the main method)
+	 * @param index The index of the call, as written by the parser ("call 0")
+	 * @param fnc The function running, null for the main method
+	 * @return The call
+	 */
+	private HostCall hostCall(String index, Function fnc)
+	{
+		int i = Integer.parseInt(index);
+		return fnc != null ? fnc.getCall(i) : script.getCall(i);
+	}
+	
+	/**
+	 * Runs a host function call whose parameters and result are numbers. 
+	 * Up to four arguments are given as doubles, without creating any objects
+	 * @param call The call
+	 * @return The result
+	 */
+	private double callNumber(HostCall call)
+	{
+		String[] a = call.getArguments();
+		MethodHandle h = call.getHandle();
+		try
+		{
+			switch(a.length)
+			{
+				case 0: return (double) h.invokeExact();
+				case 1: return (double) h.invokeExact(number(a[0]));
+				case 2: return (double) h.invokeExact(number(a[0]), number(a[1]));
+				case 3: return (double) h.invokeExact(number(a[0]), number(a[1]), number(a[2]));
+				case 4: return (double) h.invokeExact(number(a[0]), number(a[1]), number(a[2]), number(a[3]));
+			}
+			return (Double) h.invokeWithArguments(arguments(call));
+		}
+		catch(RuntimeException | Error e){throw e;}
+		catch(Throwable e){throw new RuntimeException(call.getName() + ": " + e.getMessage(), e);}
+	}
+	
+	/**
+	 * Runs a host function call
+	 * @param call The call
+	 * @return The result (a Double for number results)
+	 */
+	private Object call(HostCall call)
+	{
+		if(call.isNumeric()) return callNumber(call);
+		try{return call.getHandle().invokeWithArguments(arguments(call));}
+		catch(RuntimeException | Error e){throw e;}
+		catch(Throwable e){throw new RuntimeException(call.getName() + ": " + e.getMessage(), e);}
+	}
+	
+	/**
+	 * Reads the arguments of a host function call
+	 * @param call The call
+	 * @return Doubles for number parameters, text (as read for a table key) for the others
+	 */
+	private Object[] arguments(HostCall call)
+	{
+		String[] a = call.getArguments();
+		Object[] values = new Object[a.length];
+		for(int i = 0; i != a.length; i++) values[i] = call.isNumber(i) ? (Object) number(a[i]) : key(a[i]);
+		return values;
+	}
+	
 	/**
 	 * The print formatter. Using the same methods that Variable operations are performed, 
 	 * @param input 
@@ -178,39 +600,70 @@ public class Interpreter
 	private String print(String input)
 	{
 		String[] printSwap;
-		String output = "";
-		boolean openQuote = false;
 		
 		if(input.contains("&")) printSwap = input.split(" & ");
 		else if(input.equals("\" \"")) printSwap = input.split("");
 		else printSwap = input.split(" ");
 		
-		for(int i = 0; i != printSwap.length; i++)
+		return print(printSwap, 0);
+	}
+	
+	/**
+	 * Formats the pieces of a print
+	 * @param printSwap The pieces (split at "&" or spaces)
+	 * @param first The first piece to format
+	 * @return The formatted text
+	 */
+	private String print(String[] printSwap, int first)
+	{
+		StringBuilder output = new StringBuilder();
+		boolean openQuote = false;
+		
+		for(int i = first; i < printSwap.length; i++)
 		{
 			printSwap[i] = printSwap[i].	trim();
-			if(printSwap[i].contains("\"") && !printSwap[i].endsWith("\"") && printSwap[i].startsWith("\"")) output += printSwap[i].replaceAll("[\"]", "") + " ";
-			else if(printSwap[i].contains("\"")) output += printSwap[i].replaceAll("[\"]", "");
+			if(printSwap[i].contains("\"") && !printSwap[i].endsWith("\"") && printSwap[i].startsWith("\"")) output.append(printSwap[i].replaceAll("[\"]", "")).append(" ");
+			else if(printSwap[i].contains("\"")) output.append(printSwap[i].replaceAll("[\"]", ""));
 			else if(printSwap[i].trim() != "")
 			{
 				switch(getType(printSwap[i].trim()))
 				{
 					case 0:	case 1: case 2: case 3: case 4: case 5: case 7: case 8: case 9: case 11: case 12: case 13: case 14: case 15:
-					case 16: output += printSwap[i]; break;
-					case 6:  output += script.getVariable(printSwap[i].trim().substring(1)).getValue(); break;
-					case 10: output += script.getNumeral(printSwap[i].trim().substring(1)).getValue();  break;
+					case 16: output.append(printSwap[i]); break;
+					case 6:  output.append(script.getVariable(printSwap[i].trim().substring(1)).getValue()); break;
+					case 10: output.append(script.getNumeral(printSwap[i].trim().substring(1)).getValue());  break;
+					case 34: 
+						if(printSwap[i].endsWith("]")) output.append(number(printSwap[i]));
+						else output.append(Arrays.toString(script.getArray(arrayName(printSwap[i])).getValue()));
+						break;
+					case 66:
+						Table table = script.getTable(arrayName(printSwap[i]));
+						if(printSwap[i].endsWith("]")) 
+						{
+							Object value = table.get(key(printSwap[i].substring(printSwap[i].indexOf('[') + 1, printSwap[i].length() - 1)));
+							output.append(value == null ? "" : value);
+						}
+						else
+						{
+							Object[] pairs = table.getValue();
+							output.append("{");
+							for(int p = 0; p < pairs.length; p += 2) output.append(p == 0 ? "" : ", ").append(pairs[p]).append("=").append(pairs[p + 1]);
+							output.append("}");
+						}
+						break;
 					case 17: Function printFunction = script.getFunction(printSwap[i].trim().substring(1));
 						runFunction(printFunction);
-						output += printFunction.getValue();
+						output.append(printFunction.getValue());
 						break;
 				}
 			}
 			
-			if(openQuote && !printSwap[i].endsWith("\"")) output += " ";
+			if(openQuote && !printSwap[i].endsWith("\"")) output.append(" ");
 			else if(!openQuote && printSwap[i].startsWith("\"")) openQuote = true;
 			else openQuote = false;
 		}
 		
-		return output;
+		return output.toString();
 	}
 	
 	/**
@@ -218,7 +671,7 @@ public class Interpreter
 	 * Variable is 4, Variable notation ($) is 2; A variable with a variable notation is 2 + 4 = 6
 	 * @param string The String to be analyzed
 	 * @param script The script which the string comes from
-	 * @return +1: Function notation; +2: Variable notation; +4 is a variable; +8 is a numeral; +16 is a function
+	 * @return +1: Function notation; +2: Variable notation; +4 is a variable; +8 is a numeral; +16 is a function; +32 is a numeral array; +64 is a table
 	 */
 	private int getType(String string)
 	{
@@ -235,11 +688,78 @@ public class Interpreter
 			if(script.isVariable(split[0])) value += 4;
 			if(script.isNumeral(split[0]))  value += 8;
 			if(script.isFunction(split[0])) value += 16;
+			if(script.isArray(arrayName(split[0]))) value += 32;
+			if(script.isTable(arrayName(split[0]))) value += 64;
 		}
 
 		return value;
 	}
 	
+	/**
+	 * Reads the name of an array (or table) from a reference
+	 * @param string A reference such as "$name", "name" or "$name[i]"
+	 * @return The name
+	 */
+	private String arrayName(String string)
+	{
+		if(string.startsWith("$")) string = string.substring(1);
+		if(string.contains("[")) string = string.substring(0, string.indexOf('['));
+		return string;
+	}
+	
+	/**
+	 * Reads the index of an array reference
+	 * @param string A reference such as "$name[3]" or "name[$i]"
+	 * @return The index
+	 */
+	private int index(String string)
+	{
+		return (int) number(string.substring(string.indexOf('[') + 1, string.length() - 1));
+	}
+	
+	/**
+	 * Reads a key of a table
+	 * @param string A variable ("$v"), a numeral ("$n") or text (quotes are removed)
+	 * @return The key
+	 */
+	private String key(String string)
+	{
+		switch(getType(string))
+		{
+			case 6:  return script.getVariable(string.substring(1)).getValue();
+			case 10: return script.getNumeral(string.substring(1)).getValue().toString();
+		}
+		return string.replaceAll("[\"]", "");
+	}
+	
+	/**
+	 * Reads a value to be stored in a table
+	 * @param string A numeral ("$n") or a number become numerals; anything else is printed to text
+	 * @return A Double or a String
+	 */
+	private Object tableValue(String string)
+	{
+		string = string.trim();
+		if(getType(string) == 10 || (!string.equals("") && string.replaceAll("[0-9.]", "").equals(""))) return number(string);
+		return print(string);
+	}
+	
+	/**
+	 * Gets the value of a number, a numeral ("$n") or a value of an array ("$a[i]")
+	 * @param string The value to read
+	 * @return The value, 0.0 if it is none of these
+	 */
+	private double number(String string)
+	{
+		switch(getType(string))
+		{
+			case 10: return script.getNumeral(string.substring(1)).getDouble();
+			case 34: if(string.endsWith("]")) return script.getArray(arrayName(string)).get(index(string));
+		}
+		if(!string.equals("") && string.replaceAll("[0-9.]", "").equals("")) return Double.parseDouble(string);
+		return 0.0;
+	}
+	
 	/**
 	 * Takes an input and checks if it matches any operation syntax
 	 * @param string The character to analyze
@@ -272,7 +792,8 @@ public class Interpreter
 	 */
 	private void echo(Object o)
 	{
-		if(textArea != null) textArea.append(o + "");
-		else System.out.println(o);
+		String text = o + "";
+		Metrics.wrote(text.length());
+		output.print(text);
 	}
 }
@@ -0,0 +1,31 @@
+package nk.hiroshi.plusle.runtime;
+
+import java.util.Map;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Loads the classes generated for one compiled script. Each script gets a loader of its own,
+ * so its classes can be unloaded as soon as the script isn't used any more.
+ * @since 19 October, 2026
+ */
+final class JvmClassLoader extends ClassLoader
+{
+	/** The class files by binary name */
+	private final Map<String, byte[]> classes;
+
+	JvmClassLoader(Map<String, byte[]> classes)
+	{
+		super(JvmScript.class.getClassLoader());
+		this.classes = classes;
+	}
+
+	@Override
+	protected Class<?> findClass(String name) throws ClassNotFoundException
+	{
+		byte[] bytes = classes.remove(name);
+		if(bytes == null) throw new ClassNotFoundException(name);
+		return defineClass(name, bytes, 0, bytes.length);
+	}
+}
@@ -0,0 +1,577 @@
+package nk.hiroshi.plusle.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import nk.hiroshi.plusle.script.cmd.Condition;
+import nk.hiroshi.plusle.script.cmd.Conditional;
+import nk.hiroshi.plusle.script.cmd.Expression;
+import nk.hiroshi.plusle.script.cmd.Function;
+import nk.hiroshi.plusle.script.cmd.HostCall;
+import nk.hiroshi.plusle.script.cmd.Script;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Compiles a parsed script ahead of time into a JVM class (a {@link JvmScript}), which the JIT then treats like any other code. <br>
+ * The class has one method per function, one double field per numeral and real branches for conditional statements;
+ * every command is translated to what the {@link Interpreter} would do with it, so both print the same output.
+ * Host functions registered as public static methods, taking and giving numbers, are called directly. <br>
+ * The class is written as Java source, compiled in memory by the system Java compiler and loaded by a {@link JvmClassLoader}
+ * of its own. When there is no compiler (a JRE), or the script uses something the compiler doesn't translate
+ * (numeral arrays, tables, each, imported modules), the script is run by the interpreter instead.
+ * @since 19 October, 2026
+ */
+public final class JvmCompiler
+{
+	/** The package of the generated classes */
+	private static final String PACKAGE = "nk.hiroshi.plusle.generated";
+
+	/** Numbers the generated classes */
+	private static final AtomicInteger classes = new AtomicInteger();
+
+	/** Commands the interpreter knows, in the order of Interpreter.cmd */
+	private static final String[] COMMANDS = {"echo", "prompt", "return", "if", "write", "copy", "read", "get", "put", "remove", "contains", "each", "parallel", "call"};
+
+	/** Java operators of the conditional operations (see Condition.Comparison.getOperation) */
+	private static final String[] CONDITIONS = {"!=", "==", "<", "<=", ">", ">="};
+
+	/** Java operators of the numeral operations (see Interpreter.operation) */
+	private static final String[] OPERATIONS = {"+", "-", "*", "/"};
+
+	private final Script script;
+
+	/** The names of the numerals, variables and functions used, by index */
+	private final ArrayList<String> numerals  = new ArrayList<String>(),
+									variables = new ArrayList<String>(),
+									functions = new ArrayList<String>();
+
+	/** Functions which are called but whose method hasn't been written yet */
+	private final ArrayDeque<Integer> pending = new ArrayDeque<Integer>();
+
+	/** The methods of the class */
+	private final StringBuilder methods = new StringBuilder();
+
+	private JvmCompiler(Script script)
+	{
+		this.script = script;
+	}
+
+	/**
+	 * Compiles a script
+	 * @param script The script to compile
+	 * @param output Where text is written
+	 * @return The compiled script, or null if it can't be compiled
+	 */
+	public static JvmScript compile(Script script, Output output)
+	{
+		JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+		if(script == null || javac == null) return null;
+
+		String name = "Script" + classes.incrementAndGet(), source;
+		try{source = new JvmCompiler(script).source(name);}
+		catch(Unsupported e){return null;}
+		catch(RuntimeException e){return null;} //A command the interpreter would fail on (such as "if x")
+
+		Map<String, byte[]> compiled = compile(javac, PACKAGE + "." + name, source);
+		if(compiled == null) return null;
+
+		try
+		{
+			return new JvmClassLoader(compiled).loadClass(PACKAGE + "." + name).asSubclass(JvmScript.class)
+					.getConstructor(Script.class, Output.class).newInstance(script, output);
+		}
+		catch(ReflectiveOperationException e){return null;}
+		catch(LinkageError e){return null;}
+	}
+
+	/**
+	 * Compiles a script, falling back on the interpreter when it can't be compiled
+	 * @param script The script to run
+	 * @param output Where text is written
+	 * @return Runs the script
+	 */
+	public static Runnable runner(Script script, Output output)
+	{
+		JvmScript compiled = compile(script, output);
+		if(compiled != null) return compiled;
+		return new Interpreter(script, output);
+	}
+
+	/**
+	 * Compiles Java source in memory
+	 * @return The class files by binary name, null if the source doesn't compile
+	 */
+	private static Map<String, byte[]> compile(JavaCompiler javac, String name, final String source)
+	{
+		final Map<String, ByteArrayOutputStream> output = new HashMap<String, ByteArrayOutputStream>();
+		StandardJavaFileManager standard = javac.getStandardFileManager(null, null, null);
+
+		JavaFileManager files = new ForwardingJavaFileManager<StandardJavaFileManager>(standard)
+		{
+			@Override
+			public JavaFileObject getJavaFileForOutput(Location location, final String className, Kind kind, FileObject sibling)
+			{
+				return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind)
+				{
+					@Override
+					public OutputStream openOutputStream()
+					{
+						ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+						output.put(className, bytes);
+						return bytes;
+					}
+				};
+			}
+		};
+
+		JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + name.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE)
+		{
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors){return source;}
+		};
+
+		//The generated class extends JvmScript, so it needs to see the classes of the language
+		String classPath = System.getProperty("java.class.path");
+		try{classPath += File.pathSeparator + new File(JvmScript.class.getProtectionDomain().getCodeSource().getLocation().toURI());}
+		catch(Exception e){classPath.length();} //Only the class path of the JVM can be used
+
+		StringWriter errors = new StringWriter();
+		boolean success = javac.getTask(errors, files, null, Arrays.asList("-classpath", classPath, "-g:none", "-nowarn"), null, Arrays.asList(file)).call();
+		if(!success) return null;
+
+		Map<String, byte[]> compiled = new HashMap<String, byte[]>();
+		for(Map.Entry<String, ByteArrayOutputStream> e : output.entrySet()) compiled.put(e.getKey(), e.getValue().toByteArray());
+		return compiled;
+	}
+
+	/**
+	 * Writes the source of the class
+	 * @param name The simple name of the class
+	 * @return The source
+	 * @throws Unsupported If the script can't be compiled
+	 */
+	private String source(String name) throws Unsupported
+	{
+		StringBuilder main = new StringBuilder();
+		for(String c : script.getRunnable()) statement(c, null, main);
+
+		//Functions are compiled as they are found (only those which can be called)
+		while(!pending.isEmpty())
+		{
+			int index = pending.poll();
+			Function f = script.getFunction(functions.get(index));
+			if(f.getParent() != script) throw new Unsupported(); //Imported modules read their own numerals
+
+			StringBuilder body = new StringBuilder();
+			for(String c : f.getRunnable()) statement(c, f, body);
+			methods.append("\tprivate String f").append(index).append("()\n\t{\n").append(body)
+				   .append("\t\treturn functions[").append(index).append("].getValue();\n\t}\n\n");
+		}
+
+		StringBuilder s = new StringBuilder();
+		s.append("package ").append(PACKAGE).append(";\n\n");
+		s.append("public final class ").append(name).append(" extends nk.hiroshi.plusle.runtime.JvmScript\n{\n");
+
+		for(int i = 0; i != numerals.size(); i++) s.append("\tprivate double n").append(i).append(";\n");
+		s.append("\n\tpublic ").append(name).append("(nk.hiroshi.plusle.script.cmd.Script script, nk.hiroshi.plusle.runtime.Output output)\n\t{\n");
+		s.append("\t\tsuper(script, output, ").append(names(numerals)).append(", ").append(names(variables)).append(", ").append(names(functions)).append(");\n\t}\n\n");
+
+		s.append("\tprotected void load()\n\t{\n");
+		for(int i = 0; i != numerals.size(); i++) s.append("\t\tn").append(i).append(" = numeral(").append(i).append(");\n");
+		s.append("\t}\n\n\tprotected void store()\n\t{\n");
+		for(int i = 0; i != numerals.size(); i++) s.append("\t\tnumeral(").append(i).append(", n").append(i).append(");\n");
+		s.append("\t}\n\n\tprotected void main()\n\t{\n").append(main).append("\t}\n\n");
+
+		return s.append(methods).append("}\n").toString();
+	}
+
+	/**
+	 * Translates a command (see Interpreter.exec)
+	 * @param cmd The command
+	 * @param fnc The function the command belongs to (null for the main method)
+	 * @param code Where the code is written
+	 * @throws Unsupported If the command can't be translated
+	 */
+	private void statement(String cmd, Function fnc, StringBuilder code) throws Unsupported
+	{
+		String[] split = cmd.split(" ");
+
+		switch(command(cmd))
+		{
+			case -1:
+				switch(type(cmd))
+				{
+					case 4:
+						if(3 <= split.length && split[1].equals("="))
+						{
+							String extra = cmd.substring(split[0].length() + split[1].length() + 2).trim();
+							String[] terms = extra.split(" & ");
+							String variable = variable(split[0]);
+
+							if(1 < terms.length && terms[0].trim().equals("$" + split[0])) line(code, variable + ".append(" + print(terms, 1) + ");");
+							else line(code, variable + ".setValue(" + print(extra) + ");");
+						}
+						break;
+					case 8:
+						String a = numeral(split[0]);
+						if(3 <= split.length && split[1].equals("=") && Expression.of(cmd.substring(split[0].length() + 3)) != null) //n = <expression>
+						{
+							line(code, a + " = " + Expression.of(cmd.substring(split[0].length() + 3)).toSource(numerals()) + ";");
+						}
+						else if(split.length == 3 && type(split[2]) == 10)
+						{
+							int op = operation(split[1]);
+							if(op == 0 || op == 1) line(code, a + " = " + a + " " + OPERATIONS[op] + " " + numeral(split[2].substring(1)) + ";");
+						}
+						else if(split.length == 3 && split[2].replaceAll("[0-9.]", "").equals(""))
+						{
+							int op = operation(split[1]);
+							if(op == 0 || op == 1) line(code, a + " = " + a + " " + OPERATIONS[op] + " " + number(split[2]) + ";");
+						}
+						else if(split.length == 3 && split[1].equals("=") && type(split[2]) == 34) throw new Unsupported();
+						else if(split.length == 4 && split[1].equals("=") && type(split[3]) == 34) throw new Unsupported();
+						else if(split.length == 5 && split[1].equals("=") && type(split[0]) == 8)
+						{
+							String b = operand(split[2]), c = operand(split[4]);
+							int op = operation(split[3]);
+							if(0 <= op) line(code, a + " = " + b + " " + OPERATIONS[op] + " " + c + ";");
+						}
+						break;
+					case 32: throw new Unsupported(); //Numeral arrays
+					case 16:
+						if(!script.isFunction(cmd)) throw new Unsupported(); //The interpreter fails on it
+						line(code, function(cmd) + "();");
+						break;
+				}
+				break;
+			case 0:
+				if(cmd.length() < 5) throw new Unsupported();
+				line(code, "echo(" + print(cmd.substring(5)) + " + \"\\n\");");
+				break;
+			case 1:
+				if(cmd.length() < 7) throw new Unsupported();
+				line(code, "echo(" + print(cmd.substring(7)) + ");");
+				break;
+			case 2:
+				if(fnc == null) break;
+				if(cmd.length() < 7) throw new Unsupported();
+				line(code, "functions[" + index(fnc.getName()) + "].setValue(" + print(cmd.substring(7)) + ");");
+				break;
+			case 3:
+				Conditional c = fnc != null ? fnc.getCondition(Integer.parseInt(split[1])) : script.getCondition(Integer.parseInt(split[1]));
+				if(c == null || c.getParent() != script) throw new Unsupported();
+
+				String whenTrue = c.getRunnable(true)[0], whenFalse = c.getRunnable(false)[0];
+				line(code, "if(" + condition(c.getTest()) + ") {" + (script.isFunction(whenTrue) ? function(whenTrue) + "();" : "") + "}");
+				if(script.isFunction(whenFalse)) line(code, "else " + function(whenFalse) + "();");
+				break;
+			case 7:
+				if(split.length == 2) line(code, "echo(System.getProperty(" + string(split[1]) + "));");
+				else if(split.length == 4 && script.isTable(split[1])) throw new Unsupported();
+				break;
+			case 8: case 9: case 10: case 11: case 12: throw new Unsupported(); //Tables and each
+			case 13: //call <index> [name]
+				HostCall call = call(split[1], fnc);
+				if(split.length == 2) line(code, invocation(call) + ";");
+				else if(script.isNumeral(split[2]))
+				{
+					if(call.getMethod().getReturnType() != void.class) line(code, numeral(split[2]) + " = (double) " + invocation(call) + ";");
+					else
+					{
+						line(code, invocation(call) + ";");
+						line(code, numeral(split[2]) + " = 0.0;");
+					}
+				}
+				else if(script.isVariable(split[2]))
+				{
+					if(call.getMethod().getReturnType() == void.class) throw new Unsupported();
+					line(code, variable(split[2]) + ".setValue(String.valueOf((double) " + invocation(call) + "));");
+				}
+				break;
+		}
+	}
+
+	/**
+	 * Finds a host function call which can be compiled to a direct call: a public static method of a public class (in a package)
+	 * which takes and gives numbers and throws no checked exceptions
+	 * @throws Unsupported For any other call (it is run through its MethodHandle by the interpreter)
+	 */
+	private HostCall call(String index, Function fnc) throws Unsupported
+	{
+		int i = Integer.parseInt(index);
+		HostCall call = fnc != null ? fnc.getCall(i) : script.getCall(i);
+		if(call == null || !call.isNumeric() || call.getMethod() == null) throw new Unsupported();
+
+		Method m = call.getMethod();
+		Class<?> owner = m.getDeclaringClass();
+		if(!Modifier.isPublic(m.getModifiers()) || !Modifier.isPublic(owner.getModifiers()) || owner.getCanonicalName() == null
+				|| owner.getName().indexOf('.') < 0) throw new Unsupported(); //Classes of the unnamed package can't be named by the generated class
+		for(Class<?> e : m.getExceptionTypes())
+			if(!RuntimeException.class.isAssignableFrom(e) && !Error.class.isAssignableFrom(e)) throw new Unsupported();
+
+		return call;
+	}
+
+	/**
+	 * Translates a host function call to a call of its method. Arguments are converted to the method's parameter types
+	 * as the call's MethodHandle converts them (a Java cast)
+	 * @return A Java expression of the method's return type
+	 */
+	private String invocation(HostCall call) throws Unsupported
+	{
+		Method m = call.getMethod();
+		Class<?>[] parameters = m.getParameterTypes();
+		String[] arguments = call.getArguments();
+
+		StringBuilder s = new StringBuilder(m.getDeclaringClass().getCanonicalName()).append(".").append(m.getName()).append("(");
+		for(int i = 0; i != arguments.length; i++)
+		{
+			if(type(arguments[i]) == 34) throw new Unsupported(); //Numeral arrays
+			s.append(i == 0 ? "" : ", ").append("(").append(parameters[i].getName()).append(") ").append(operand(arguments[i]));
+		}
+		return s.append(")").toString();
+	}
+
+	/**
+	 * Translates a condition (see Condition.test). "and", "or" and "not" are Java's own operators, which stop just as early
+	 * @return A Java boolean expression
+	 */
+	private String condition(Condition c) throws Unsupported
+	{
+		if(c instanceof Condition.And) return "(" + condition(((Condition.And) c).getLeft()) + " && " + condition(((Condition.And) c).getRight()) + ")";
+		if(c instanceof Condition.Or)  return "(" + condition(((Condition.Or) c).getLeft()) + " || " + condition(((Condition.Or) c).getRight()) + ")";
+		if(c instanceof Condition.Not) return "!(" + condition(((Condition.Not) c).getCondition()) + ")";
+
+		Condition.Comparison comparison = (Condition.Comparison) c;
+		String left = comparison.getLeft(), right = comparison.getRight();
+		String a = left.substring(1), b = right.substring(1);
+		int op = comparison.getOperation();
+
+		if(script.isNumeral(a) || script.isNumeral(b))
+		{
+			String x = a.replaceAll("[0-9.]", "").equals("") ? number(left) : script.isNumeral(a) ? numeral(a) : "0.0",
+				   y = b.replaceAll("[0-9.]", "").equals("") ? number(right) : script.isNumeral(b) ? numeral(b) : "0.0";
+			return op < 0 ? "false" : "(" + x + " " + CONDITIONS[op] + " " + y + ")";
+		}
+		else if(script.isVariable(a) || script.isVariable(b))
+		{
+			String x = script.isVariable(a) ? variable(a) + ".getValue()" : string(left),
+				   y = script.isVariable(b) ? variable(b) + ".getValue()" : string(right);
+			switch(op)
+			{
+				case 0: return "!" + x + ".equals(" + y + ")";
+				case 1: return x + ".equals(" + y + ")";
+			}
+		}
+		return "false";
+	}
+
+	/**
+	 * Translates a print (see Interpreter.print)
+	 * @return A Java String expression
+	 */
+	private String print(String input) throws Unsupported
+	{
+		String[] printSwap;
+
+		if(input.contains("&")) printSwap = input.split(" & ");
+		else if(input.equals("\" \"")) printSwap = input.split("");
+		else printSwap = input.split(" ");
+
+		return print(printSwap, 0);
+	}
+
+	/**
+	 * Translates the pieces of a print. Which piece is text, a value or a quote is known from the names of the script,
+	 * so only the values are left to the generated code
+	 * @return A Java String expression
+	 */
+	private String print(String[] printSwap, int first) throws Unsupported
+	{
+		StringBuilder output = new StringBuilder("new StringBuilder()"), text = new StringBuilder();
+		boolean openQuote = false;
+
+		for(int i = first; i < printSwap.length; i++)
+		{
+			String piece = printSwap[i].trim(), value = null;
+
+			if(piece.contains("\"") && !piece.endsWith("\"") && piece.startsWith("\"")) text.append(piece.replaceAll("[\"]", "")).append(" ");
+			else if(piece.contains("\"")) text.append(piece.replaceAll("[\"]", ""));
+			else
+			{
+				switch(type(piece))
+				{
+					case 0:	case 1: case 2: case 3: case 4: case 5: case 7: case 8: case 9: case 11: case 12: case 13: case 14: case 15:
+					case 16: text.append(piece); break;
+					case 6:  value = variable(piece.substring(1)) + ".getValue()"; break;
+					case 10: value = numeral(piece.substring(1)); break;
+					case 17: value = function(piece.substring(1)) + "()"; break;
+					case 34: case 66: throw new Unsupported();
+				}
+			}
+
+			if(value != null)
+			{
+				if(text.length() != 0) output.append(".append(").append(string(text.toString())).append(")");
+				output.append(".append(").append(value).append(")");
+				text.setLength(0);
+			}
+
+			if(openQuote && !piece.endsWith("\"")) text.append(" ");
+			else if(!openQuote && piece.startsWith("\"")) openQuote = true;
+			else openQuote = false;
+		}
+
+		if(output.length() == "new StringBuilder()".length()) return string(text.toString());
+		if(text.length() != 0) output.append(".append(").append(string(text.toString())).append(")");
+		return output.append(".toString()").toString();
+	}
+
+	/** @return Writes the numerals of an expression as their fields (0.0 for names which aren't numerals, as in the interpreter) */
+	private Expression.Names numerals()
+	{
+		return new Expression.Names()
+		{
+			public String numeral(String name){return script.isNumeral(name) ? JvmCompiler.this.numeral(name) : "0.0";}
+		};
+	}
+
+	/** @return The field of a numeral */
+	private String numeral(String name){return "n" + add(numerals, name);}
+
+	/** @return The Variable object of a variable */
+	private String variable(String name){return "variables[" + add(variables, name) + "]";}
+
+	/** @return The method of a function (which is written later if it's new) */
+	private String function(String name){return "f" + index(name);}
+
+	/** @return The index of a function, queuing it to be compiled if it's new */
+	private int index(String name)
+	{
+		int size = functions.size(), index = add(functions, name);
+		if(index == size) pending.add(index);
+		return index;
+	}
+
+	/** @return The index of a name in a list, adding it if it isn't there */
+	private static int add(ArrayList<String> list, String name)
+	{
+		int index = list.indexOf(name);
+		if(index < 0)
+		{
+			list.add(name);
+			index = list.size() - 1;
+		}
+		return index;
+	}
+
+	/** @return A numeral ("$n") as a field, or a number as a literal (0.0 for anything else, as in the interpreter) */
+	private String operand(String string) throws Unsupported
+	{
+		if(type(string) == 10) return numeral(string.substring(1));
+		else if(string.replaceAll("[0-9.]", "").equals("")) return number(string);
+		return "0.0";
+	}
+
+	/** @return A number as a Java double literal */
+	private static String number(String string) throws Unsupported
+	{
+		try{return Double.toString(Double.parseDouble(string));}
+		catch(NumberFormatException e){throw new Unsupported();} //The interpreter fails on it
+	}
+
+	/** @return A String as a Java String literal */
+	private static String string(String string)
+	{
+		StringBuilder s = new StringBuilder("\"");
+		for(char c : string.toCharArray())
+		{
+			if(c == '"' || c == '\\') s.append('\\').append(c);
+			else if(c < ' ') s.append(String.format("\\%03o", (int) c));
+			else s.append(c);
+		}
+		return s.append('"').toString();
+	}
+
+	/** @return Names as a Java String[] expression */
+	private static String names(ArrayList<String> names)
+	{
+		StringBuilder s = new StringBuilder("new String[] {");
+		for(int i = 0; i != names.size(); i++) s.append(i == 0 ? "" : ", ").append(string(names.get(i)));
+		return s.append("}").toString();
+	}
+
+	private static void line(StringBuilder code, String line){code.append("\t\t").append(line).append("\n");}
+
+	/** @return The index of the command (see Interpreter.getCommand) */
+	private static int command(String command)
+	{
+		command = command.split(" ")[0];
+		for(int i = 0; i != COMMANDS.length; i++) if(command.equals(COMMANDS[i])) return i;
+		return -1;
+	}
+
+	/** @return The type of a String, read from the names of the script (see Interpreter.getType) */
+	private int type(String string)
+	{
+		int value = 0;
+		string = string.trim();
+		String[] split = string.split(" ");
+
+		if(string.startsWith("@")) value += 1;
+		else if(string.startsWith("$")) value += 2;
+
+		if(0 < value) split[0] = split[0].substring(1);
+		if(script.isVariable(split[0])) value += 4;
+		if(script.isNumeral(split[0]))  value += 8;
+		if(script.isFunction(split[0])) value += 16;
+		if(script.isArray(arrayName(split[0]))) value += 32;
+		if(script.isTable(arrayName(split[0]))) value += 64;
+
+		return value;
+	}
+
+	/** @return The name of an array (or table) from a reference (see Interpreter.arrayName) */
+	private static String arrayName(String string)
+	{
+		if(string.startsWith("$")) string = string.substring(1);
+		if(string.contains("[")) string = string.substring(0, string.indexOf('['));
+		return string;
+	}
+
+	/** @return The index of a numeral operation (see Interpreter.operation) */
+	private static int operation(String string)
+	{
+		for(int i = 0; i != OPERATIONS.length; i++) if(string.equals(OPERATIONS[i])) return i;
+		return -1;
+	}
+
+	/** Thrown when the script uses something that isn't compiled; the interpreter runs it instead */
+	private static class Unsupported extends Exception
+	{
+		private static final long serialVersionUID = 3194416287208263530L;
+	}
+}
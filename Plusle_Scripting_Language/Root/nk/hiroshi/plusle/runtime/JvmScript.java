@@ -0,0 +1,116 @@
+package nk.hiroshi.plusle.runtime;
+
+import nk.hiroshi.plusle.script.cmd.Function;
+import nk.hiroshi.plusle.script.cmd.Script;
+import nk.hiroshi.plusle.script.data.Numeral;
+import nk.hiroshi.plusle.script.data.Variable;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * A script compiled to a class of its own by the {@link JvmCompiler}. It is run just like an {@link Interpreter}. <br>
+ * While it runs, the numerals it uses are kept in fields of the class (doubles); they are read from the script when
+ * the run starts and written back when it ends. Variables and functions are used through the script's own objects.
+ * @since 19 October, 2026
+ */
+public abstract class JvmScript implements Runnable
+{
+	/** The script which was compiled */
+	private final Script script;
+
+	/** Where text is written */
+	private final Output output;
+
+	/** The names of the numerals, variables and functions used by the compiled code, by the index it refers to them with */
+	private final String[] numeralNames, variableNames, functionNames;
+
+	/** The numerals of the script, found again before each run */
+	private Numeral[] numerals;
+
+	/** The variables and functions of the script, found again before each run */
+	protected Variable[] variables;
+	protected Function[] functions;
+
+	/**
+	 * @param script The script which was compiled
+	 * @param output Where text is written
+	 * @param numerals The names of the numerals used by the compiled code
+	 * @param variables The names of the variables used by the compiled code
+	 * @param functions The names of the functions used by the compiled code
+	 */
+	protected JvmScript(Script script, Output output, String[] numerals, String[] variables, String[] functions)
+	{
+		this.script = script;
+		this.output = output;
+		numeralNames = numerals;
+		variableNames = variables;
+		functionNames = functions;
+	}
+
+	/**
+	 * Runs the main method, writing errors just as the interpreter does
+	 */
+	@Override
+	public void run()
+	{
+		numerals = new Numeral[numeralNames.length];
+		variables = new Variable[variableNames.length];
+		functions = new Function[functionNames.length];
+		for(int i = 0; i != numerals.length; i++)  numerals[i]  = script.getNumeral(numeralNames[i]);
+		for(int i = 0; i != variables.length; i++) variables[i] = script.getVariable(variableNames[i]);
+		for(int i = 0; i != functions.length; i++) functions[i] = script.getFunction(functionNames[i]);
+
+		long start = System.nanoTime();
+		load();
+		try
+		{
+			main();
+		}
+		catch(StackOverflowError e)
+		{
+			Metrics.failed(true);
+			echo("Error: Stack Overflow Error");
+		}
+		catch(Exception e)
+		{
+			Metrics.failed(false);
+			echo("Error: " + e.getMessage());
+		}
+		finally
+		{
+			store();
+			output.flush();
+			Metrics.ran(System.nanoTime() - start);
+		}
+	}
+
+	/** @return The script which was compiled */
+	public Script getScript(){return script;}
+
+	/** Reads the numerals of the script into the fields of the class */
+	protected abstract void load();
+
+	/** Writes the fields of the class back to the numerals of the script */
+	protected abstract void store();
+
+	/** The main method of the script */
+	protected abstract void main();
+
+	/** @return The value of a numeral */
+	protected final double numeral(int index){return numerals[index].getDouble();}
+
+	/** Sets the value of a numeral */
+	protected final void numeral(int index, double value){numerals[index].setDouble(value);}
+
+	/**
+	 * Writes to the output (the same as the interpreter)
+	 * @param o The text (object) to be print
+	 */
+	protected final void echo(Object o)
+	{
+		String text = o + "";
+		Metrics.wrote(text.length());
+		output.print(text);
+	}
+}
@@ -0,0 +1,189 @@
+package nk.hiroshi.plusle.runtime;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Counts what the parsers and the scripts of this JVM do: scripts run, how long parsing and running take, text written,
+ * errors and stack overflows. Every count is a LongAdder, so threads running scripts at once don't contend for it. <br>
+ * The counts are written in the Prometheus text format by {@link #write(StringBuilder)},
+ * and served at http://localhost:port/metrics by {@link #serve(int)}.
+ * @since 19 October, 2026
+ */
+public final class Metrics
+{
+	/** Scripts run, runs which stopped with an error (of which stack overflows), scripts which failed to parse */
+	private static final LongAdder runs = new LongAdder(), errors = new LongAdder(), overflows = new LongAdder(), parseErrors = new LongAdder();
+
+	/** Characters written by scripts */
+	private static final LongAdder output = new LongAdder();
+
+	/** How long parsing and running take */
+	private static final Histogram parsing = new Histogram(), running = new Histogram();
+
+	/** The quantiles of the run time which are written */
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+	private Metrics(){}
+
+	/** Counts a script which was parsed (or failed to be) */
+	static void parsed(long nanos, boolean failed)
+	{
+		parsing.add(nanos);
+		if(failed) parseErrors.increment();
+	}
+
+	/** Counts a run of a script */
+	static void ran(long nanos){runs.increment(); running.add(nanos);}
+
+	/** Counts an error which stopped a script */
+	static void failed(boolean overflow)
+	{
+		errors.increment();
+		if(overflow) overflows.increment();
+	}
+
+	/** Counts text written by a script */
+	static void wrote(int characters){output.add(characters);}
+
+	/**
+	 * Writes every metric in the Prometheus text format (version 0.0.4)
+	 * @param s Where the metrics are written
+	 * @return s
+	 */
+	public static StringBuilder write(StringBuilder s)
+	{
+		counter(s, "plusle_scripts_executed_total", "Scripts run", runs);
+		counter(s, "plusle_errors_total", "Runs stopped by an error", errors);
+		counter(s, "plusle_stack_overflows_total", "Runs stopped by a StackOverflowError", overflows);
+		counter(s, "plusle_parse_errors_total", "Scripts which failed to parse", parseErrors);
+		counter(s, "plusle_output_characters_total", "Characters written by scripts", output);
+
+		//Parse time as a histogram, with a bucket for each power of 2 microseconds from 16 us to about 17 s
+		s.append("# HELP plusle_parse_seconds Time taken to parse a script\n# TYPE plusle_parse_seconds histogram\n");
+		long[] counts = parsing.counts();
+		long cumulative = 0;
+		int bucket = 0;
+		for(int e = 14; e <= 34; e++)
+		{
+			for(; bucket < counts.length && Histogram.upper(bucket) <= 1L << e; bucket++) cumulative += counts[bucket];
+			s.append("plusle_parse_seconds_bucket{le=\"").append((1L << e) / 1e9).append("\"} ").append(cumulative).append('\n');
+		}
+		long total = 0;
+		for(long c : counts) total += c;
+		s.append("plusle_parse_seconds_bucket{le=\"+Inf\"} ").append(total).append('\n');
+		s.append("plusle_parse_seconds_sum ").append(parsing.sum() / 1e9).append('\n');
+		s.append("plusle_parse_seconds_count ").append(total).append('\n');
+
+		//Run time as a summary; the quantiles are read from the histogram (within 12.5%)
+		s.append("# HELP plusle_run_seconds Time taken to run a script\n# TYPE plusle_run_seconds summary\n");
+		counts = running.counts();
+		total = 0;
+		for(long c : counts) total += c;
+		for(double q : QUANTILES)
+			s.append("plusle_run_seconds{quantile=\"").append(q).append("\"} ").append(Histogram.quantile(counts, total, q) / 1e9).append('\n');
+		s.append("plusle_run_seconds_sum ").append(running.sum() / 1e9).append('\n');
+		s.append("plusle_run_seconds_count ").append(total).append('\n');
+		return s;
+	}
+
+	private static void counter(StringBuilder s, String name, String help, LongAdder value)
+	{
+		s.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		s.append("# TYPE ").append(name).append(" counter\n");
+		s.append(name).append(' ').append(value.sum()).append('\n');
+	}
+
+	/**
+	 * Serves the metrics at http://localhost:port/metrics (only to this machine)
+	 * @param port The port (0 for any free port)
+	 * @return The server, already started; stop it to stop serving
+	 * @throws IOException If the port can't be used
+	 */
+	public static HttpServer serve(int port) throws IOException
+	{
+		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/metrics", new HttpHandler()
+		{
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				byte[] body = write(new StringBuilder()).toString().getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+				exchange.sendResponseHeaders(200, body.length);
+
+				OutputStream out = exchange.getResponseBody();
+				try{out.write(body);}
+				finally{out.close();}
+			}
+		});
+		server.start();
+		return server;
+	}
+
+	/**
+	 * Counts durations in buckets which grow exponentially: 8 buckets for each power of 2 nanoseconds,
+	 * so a bucket is never wider than 12.5% of its values
+	 */
+	private static final class Histogram
+	{
+		/** Buckets per power of 2 (as a power of 2) */
+		private static final int SUB = 3;
+
+		private final LongAdder[] buckets = new LongAdder[(64 - SUB) << SUB];
+		private final LongAdder sum = new LongAdder();
+
+		private Histogram()
+		{
+			for(int i = 0; i != buckets.length; i++) buckets[i] = new LongAdder();
+		}
+
+		private void add(long nanos)
+		{
+			long n = Math.max(nanos, 1L << SUB);
+			int e = 63 - Long.numberOfLeadingZeros(n);
+			buckets[((e - SUB) << SUB) + (int) ((n >>> (e - SUB)) & ((1 << SUB) - 1))].increment();
+			sum.add(nanos);
+		}
+
+		private long[] counts()
+		{
+			long[] counts = new long[buckets.length];
+			for(int i = 0; i != counts.length; i++) counts[i] = buckets[i].sum();
+			return counts;
+		}
+
+		private long sum(){return sum.sum();}
+
+		/** @return The largest duration counted by a bucket (nanoseconds) */
+		private static long upper(int bucket)
+		{
+			int e = (bucket >>> SUB) + SUB, sub = bucket & ((1 << SUB) - 1);
+			return ((long) ((1 << SUB) + sub + 1) << (e - SUB)) - 1;
+		}
+
+		/** @return The upper end of the bucket which holds the quantile (0 if nothing was counted) */
+		private static long quantile(long[] counts, long total, double q)
+		{
+			if(total == 0) return 0;
+
+			long rank = (long) Math.ceil(q * total), seen = 0;
+			for(int i = 0; i != counts.length; i++)
+			{
+				seen += counts[i];
+				if(rank <= seen) return upper(i);
+			}
+			return upper(counts.length - 1);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package nk.hiroshi.plusle.runtime;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Holds every script that has been imported, parsed once for the whole process. <br>
+ * A module is parsed by the first script that imports it; scripts importing it at the same time wait for that parse
+ * instead of starting their own. A module is parsed again only when its file changes (modification time or size).
+ * @since 19 October, 2026
+ */
+final class ModuleCache
+{
+	/** Parsed modules by canonical path */
+	private static final ConcurrentHashMap<String, Module> modules = new ConcurrentHashMap<String, Module>();
+
+	private ModuleCache(){}
+
+	/**
+	 * Gets the parser of a module, parsing it if it isn't cached (or changed since)
+	 * @param file The module file
+	 * @param console Where errors of the module are written
+	 * @param importers Canonical paths of the importing script and of the scripts importing it
+	 * @return The parser holding the module; its script is null if the module could not be parsed
+	 * @throws IOException If the file can't be read or is being imported by itself
+	 */
+	static Parser get(File file, Output console, Set<String> importers) throws IOException
+	{
+		String path = file.getCanonicalPath();
+		if(importers.contains(path)) throw new IOException("Circular import of " + file.getName());
+
+		while(true)
+		{
+			Module cached = modules.get(path);
+			if(cached != null && cached.modified == file.lastModified() && cached.length == file.length()) return cached.parser();
+
+			Module fresh = new Module(path, file.lastModified(), file.length(), console, importers);
+			if(cached == null ? modules.putIfAbsent(path, fresh) == null : modules.replace(path, cached, fresh))
+			{
+				fresh.run();
+				return fresh.parser();
+			}
+		}
+	}
+
+	/** Forgets every module (they are parsed again when next imported) */
+	static void clear(){modules.clear();}
+
+	/** A module being parsed (or parsed) and the state of its file when it was read */
+	private static class Module extends FutureTask<Parser>
+	{
+		private final long modified, length;
+
+		private Module(final String path, long modified, long length, final Output console, final Set<String> importers)
+		{
+			super(new Callable<Parser>()
+			{
+				public Parser call(){return new Parser(path, console, false, importers);}
+			});
+			this.modified = modified;
+			this.length = length;
+		}
+
+		/** Waits for the module to be parsed */
+		private Parser parser() throws IOException
+		{
+			try{return get();}
+			catch(InterruptedException e){throw new IOException(e);}
+			catch(ExecutionException e){throw new IOException(e.getCause());}
+		}
+	}
+}
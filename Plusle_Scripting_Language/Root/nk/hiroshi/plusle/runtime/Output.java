@@ -0,0 +1,155 @@
+package nk.hiroshi.plusle.runtime;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Where the parser and the interpreter write their text: the GUI console, System.out or any Writer. <br>
+ * print writes text as the interpreter does (echo adds its own line break); println writes a line, as the parser does for errors.
+ * @since 19 October, 2026
+ */
+public abstract class Output
+{
+	/** Writes to System.out. Each print ends with a line break, as the language has always printed to the console */
+	public static final Output CONSOLE = new Output()
+	{
+		public void print(String text){System.out.println(text);}
+		public void println(String line){System.out.println(line);}
+	};
+
+	/** Writes text as it is */
+	public abstract void print(String text);
+
+	/** Writes a line */
+	public abstract void println(String line);
+
+	/** Writes anything that is buffered (called when a run ends) */
+	public void flush(){}
+	
+	/** @return true once the text can't be written any more (such as a pipe whose reader has gone); anything written is then dropped */
+	public boolean isClosed(){return false;}
+
+	/**
+	 * Text written from any thread but the Event Dispatch Thread (a script debugged on a thread of its own, or the workers of
+	 * "parallel each") is appended later on the Event Dispatch Thread, in the order each thread wrote it
+	 * @param area The GUI Component to write text to
+	 * @return Output to the component, or the console if it is null
+	 */
+	public static Output of(final JTextArea area)
+	{
+		if(area == null) return CONSOLE;
+		return new Output()
+		{
+			public void print(final String text)
+			{
+				if(SwingUtilities.isEventDispatchThread()) area.append(text);
+				else SwingUtilities.invokeLater(new Runnable()
+				{
+					public void run(){area.append(text);}
+				});
+			}
+
+			public void println(String line){print(line + "\n");}
+		};
+	}
+
+	/**
+	 * @param writer The Writer to write text to
+	 * @return Output to the Writer, or the console if it is null
+	 */
+	public static Output of(final Writer writer)
+	{
+		if(writer == null) return CONSOLE;
+		return new Output()
+		{
+			public void print(String text)
+			{
+				try{writer.write(text);}
+				catch(IOException e){throw new UncheckedIOException(e);}
+			}
+
+			public void println(String line){print(line + "\n");}
+
+			public void flush()
+			{
+				try{writer.flush();}
+				catch(IOException e){throw new UncheckedIOException(e);}
+			}
+		};
+	}
+
+	/**
+	 * Writes UTF-8 to a channel through a buffer, which is only written when it is full or flushed.
+	 * A write blocks while the channel can't take more (such as a pipe whose reader is behind), so a fast script never runs ahead
+	 * of a slow reader by more than the buffer. Once a write fails (the reader has gone) the output is closed and drops its text. <br>
+	 * Text which isn't valid UTF-16 (a lone surrogate) is written as '?'. Threads writing at once (parallel each) take turns,
+	 * so each print is written whole
+	 * @param channel The channel to write to
+	 * @param size The size of the buffer in bytes
+	 * @return Output to the channel
+	 */
+	public static Output of(WritableByteChannel channel, int size)
+	{
+		return new ChannelOutput(channel, size);
+	}
+	
+	/** See {@link Output#of(WritableByteChannel, int)}; the buffer and encoder are only touched while holding the output's lock */
+	private static final class ChannelOutput extends Output
+	{
+		private final WritableByteChannel channel;
+		private final ByteBuffer buffer;
+		private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		private volatile boolean closed;
+		
+		private ChannelOutput(WritableByteChannel channel, int size)
+		{
+			this.channel = channel;
+			buffer = ByteBuffer.allocateDirect(Math.max(size, 64));
+		}
+		
+		public synchronized void print(String text)
+		{
+			if(closed) return;
+			
+			CharBuffer chars = CharBuffer.wrap(text);
+			while(true)
+			{
+				CoderResult result = encoder.encode(chars, buffer, true);
+				if(result.isOverflow()) drain();
+				else break;
+				if(closed) return;
+			}
+			encoder.reset();
+		}
+		
+		public synchronized void println(String line){print(line); print("\n");}
+		
+		public synchronized void flush(){if(!closed) drain();}
+		
+		public boolean isClosed(){return closed;}
+		
+		/** Writes the buffer to the channel */
+		private void drain()
+		{
+			buffer.flip();
+			try{while(buffer.hasRemaining()) channel.write(buffer);}
+			catch(IOException e){closed = true;} //Broken pipe: whoever read the output has stopped
+			buffer.clear();
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package nk.hiroshi.plusle.runtime;
+
+import java.util.concurrent.RecursiveTask;
+
+import nk.hiroshi.plusle.script.cmd.Script;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Runs "parallel each": a function for each value of a numeral array, on a fork/join pool. <br>
+ * The range of values is split in half until it is small enough; each piece then runs in its own frame of the script
+ * (see {@link Script#fork()}) so the workers don't share variables or numerals. <br>
+ * The result of a piece is how much it changed the reduction numeral; the results are added together as the pieces join.
+ * @since 19 October, 2026
+ */
+class ParallelEach extends RecursiveTask<Double>
+{
+	private static final long serialVersionUID = 4607352384471652107L;
+
+	/** The interpreter which ran the command, and the script it was running */
+	private final Interpreter parent;
+	private final Script script;
+
+	/** The array to read, and the names of the numeral holding each value, the function to run, and the numeral to add up (may be null) */
+	private final String array, numeral, function, total;
+
+	/** The range of indexes [from, to) and the size at which a range isn't split any more */
+	private final int from, to, threshold;
+
+	ParallelEach(Interpreter parent, Script script, String array, String numeral, String function, String total, int from, int to, int threshold)
+	{
+		this.parent = parent;
+		this.script = script;
+		this.array = array;
+		this.numeral = numeral;
+		this.function = function;
+		this.total = total;
+		this.from = from;
+		this.to = to;
+		this.threshold = threshold;
+	}
+
+	@Override
+	protected Double compute()
+	{
+		if(to - from <= threshold) return parent.fork(script.fork()).each(array, numeral, function, total, from, to);
+
+		int middle = (from + to) >>> 1;
+		ParallelEach left  = new ParallelEach(parent, script, array, numeral, function, total, from, middle, threshold),
+					 right = new ParallelEach(parent, script, array, numeral, function, total, middle, to, threshold);
+
+		left.fork();
+		double sum = right.compute();
+		return left.join() + sum;
+	}
+}
@@ -3,15 +3,26 @@ package nk.hiroshi.plusle.runtime;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import javax.swing.JTextArea;
 
+import nk.hiroshi.plusle.script.cmd.Condition;
 import nk.hiroshi.plusle.script.cmd.Conditional;
 import nk.hiroshi.plusle.script.cmd.Function;
+import nk.hiroshi.plusle.script.cmd.HostCall;
 import nk.hiroshi.plusle.script.cmd.Script;
 import nk.hiroshi.plusle.script.data.Numeral;
+import nk.hiroshi.plusle.script.data.NumeralArray;
+import nk.hiroshi.plusle.script.data.Table;
 import nk.hiroshi.plusle.script.data.Variable;
 
 /* This file is part of Plusle Scripting Language *
@@ -29,53 +40,128 @@ public class Parser
 	private Script script = new Script();
 	
 	/** Storage Variable */
-	private String scriptName = "", //Contains the given name of the script (if any)
+	private String scriptName = "", //Contains the given name of the script (if any) in the block being parsed
 				   fnName	  = "", //Temporary Storage: holds the name of a function being parsed
 				   swap		  = "", //Temporary Storage: holds any variable for short use
 				   ifSwap     = "", //Temporary Storage: holds conditional commands
-				   elseSwap   = "", //Temporary Storage: holds conditional commands
-				   conSwap	  = ""; //Temporary Storage: holds conditional statements
+				   elseSwap   = ""; //Temporary Storage: holds conditional commands
 	
+	private Condition conSwap; //Temporary Storage: holds the parsed conditional statement
 	
-	private boolean openFunction  = false, // Writes to script when false, Writes to function when true
-					openCondition = false; // Checks if conditional statement has been opened
+	private int conLine; //Temporary Storage: the line the open conditional statement is written on
 	
-	/** Parsed information */
-	private ArrayList<String> rawFile 		= new ArrayList<String>(), //Lines read from the file or TextArea
-							  refined 		= new ArrayList<String>(), //Refined script (commands only)
-							  functionNames = new ArrayList<String>(), //Names of all functions in the script
-							  variableNames = new ArrayList<String>(), //Names of all variables in the script
-							  numeralNames	= new ArrayList<String>(), //Names of any numerals in the script
-							  fncSwapSpace 	= new ArrayList<String>(); //Temporary function command storage
-
-	/** Parsed functions: Functions that are read are stored here; Stored parallel to functionNames */
-	private ArrayList<Function> function = new ArrayList<Function>();
+	private boolean openCondition = false; // Checks if conditional statement has been opened
+	
+	/** Parsed information (of the block being parsed) */
+	private ArrayList<String> rawFile 		 = new ArrayList<String>(), //Lines read from the file or TextArea
+							  refined 		 = new ArrayList<String>(), //Refined block (commands only)
+							  variableNames  = new ArrayList<String>(), //Names of all variables in the block
+							  variableValues = new ArrayList<String>(), //Values of the variables; Parallel to variableNames
+							  numeralNames	 = new ArrayList<String>(), //Names of any numerals in the block
+							  arrayNames	 = new ArrayList<String>(), //Names of any numeral arrays in the block
+							  tableNames	 = new ArrayList<String>(), //Names of any tables in the block
+							  aliases		 = new ArrayList<String>(); //Names the modules of the block are imported as
+	
+	/** The line each refined command is written on; Parallel to refined */
+	private ArrayList<Integer> commandLines = new ArrayList<Integer>();
+	
+	/** Parsed Numbers: Values of the numerals that are read; Must be stored parallel to numeralNames */
+	private ArrayList<Double> numeralValues = new ArrayList<Double>();
 	
-	/** Parsed Strings: Variables that are read are stored here; Parallel to variableNames */
-	private ArrayList<Variable>	variable = new ArrayList<Variable>();
+	/** Parsed Numeral Arrays: Values of the arrays that are read; Parallel to arrayNames */
+	private ArrayList<double[]> arrayValues = new ArrayList<double[]>();
 	
-	/** Parsed Numbers: Numerals that are read are stored here; Must be stored parallel to numeralNames */
-	private ArrayList<Numeral>	numerals = new ArrayList<Numeral>();
+	/** Parsed Tables: Keys and values of the tables that are read; Parallel to tableNames */
+	private ArrayList<String[]> tableValues = new ArrayList<String[]>();
 
 	/** Parsed Conditional Statements: Conditional statements are stored here; Conditionals are parsed as indexes instead of names */
 	private ArrayList<Conditional> conditions = new ArrayList<Conditional>();
 	
+	/** Parsed Host Function Calls: Calls are resolved once, stored here and parsed as indexes ("call 0") */
+	private ArrayList<HostCall> calls = new ArrayList<HostCall>();
+	
+	/** Imported modules: Parsers of the modules imported in the block; Parallel to aliases */
+	private ArrayList<Parser> modules = new ArrayList<Parser>();
+	
+	/** The parsed blocks: the main method is always first, followed by the functions in the order they were declared */
+	private ArrayList<Block> blocks = new ArrayList<Block>();
+	
 	/** The current line being read */
 	private int lineNumber = 0;
 	
-	/** Append text to GUI console */
-	private JTextArea console;
+	/** Where errors are written (the GUI console, System.out or a Writer) */
+	private Output console = Output.CONSOLE;
+	
+	/** The directory imports are read from (null: the working directory) */
+	private File base;
+	
+	/** Compile the bodies of functions when they are first run instead of while parsing */
+	private boolean lazy;
+	
+	/** Canonical paths of this script and of the scripts importing it (to catch circular imports) */
+	private Set<String> imports = Collections.emptySet();
+	
+	/** The canonical path of the script file (null if the script wasn't read from a file) */
+	private String path;
+	
+	/** Scripts with at least this many lines have their blocks parsed on the fork/join pool */
+	private static final int PARALLEL_LINES = 4096;
+	
+	/** A task of the parallel parse reads blocks until it has read about this many lines */
+	private static final int PARALLEL_GRAIN = 1024;
 
 	/**
 	 * Makes sure the script can be read, and if so, reads it
 	 * @param scriptFile File to parse into a script object
 	 */
 	public Parser(String scriptFile)
+	{
+		this(scriptFile, (JTextArea) null);
+	}
+	
+	/**
+	 * Makes sure the script can be read, and if so, reads it
+	 * @param scriptFile File to parse into a script object
+	 * @param out The GUI Component to write errors to
+	 */
+	public Parser(String scriptFile, JTextArea out)
+	{
+		this(scriptFile, out, false);
+	}
+	
+	/**
+	 * Makes sure the script can be read, and if so, reads it. In lazy mode only the function declarations are read
+	 * at first; the body of a function is compiled when it first runs, so functions that never run cost almost nothing.
+	 * Errors in the body of a lazy function are written when it first runs (and the function does nothing).
+	 * @param scriptFile File to parse into a script object
+	 * @param out The GUI Component to write errors to
+	 * @param lazy true to compile the bodies of functions when they first run
+	 */
+	public Parser(String scriptFile, JTextArea out, boolean lazy)
+	{
+		this(scriptFile, Output.of(out), lazy, Collections.<String>emptySet());
+	}
+	
+	/**
+	 * Reads a script imported by other scripts
+	 * @param scriptFile File to parse into a script object
+	 * @param out Where errors are written
+	 * @param lazy true to compile the bodies of functions when they first run
+	 * @param importers Canonical paths of the scripts importing this one
+	 */
+	Parser(String scriptFile, Output out, boolean lazy, Set<String> importers)
 	{
 		File file = new File(scriptFile);
+		console = out;
+		this.lazy = lazy;
+		base = file.getAbsoluteFile().getParentFile();
 		
 		try
 		{
+			path = file.getCanonicalPath();
+			imports = new HashSet<String>(importers);
+			imports.add(path);
+			
 			if(file.exists() && file.isFile() && file.toString().endsWith(".plusle.nk"))
 				readFile(scriptFile);
 			else 
@@ -89,19 +175,54 @@ public class Parser
 		}
 	}
 	
+	/**
+	 * Creates a parser which parses blocks for another one (on another thread), into the other parser's script
+	 * @param parent The parser whose script the blocks belong to
+	 */
+	private Parser(Parser parent)
+	{
+		script = parent.script;
+		console = parent.console;
+		base = parent.base;
+		lazy = parent.lazy;
+		imports = parent.imports;
+	}
+	
 	/**
 	 * Converts the given array to rawFile and refines it
 	 * @param input The raw script
 	 */
 	public Parser(String[] input)
 	{
-		this(input, null);
+		this(input, Output.CONSOLE);
 	}
 	
 	/** Redirect output from console to JTextArea */
 	public Parser(String[] input, JTextArea out)
+	{
+		this(input, Output.of(out));
+	}
+	
+	/**
+	 * Converts the given array to rawFile and refines it
+	 * @param input The raw script
+	 * @param out Where errors are written
+	 */
+	public Parser(String[] input, Output out)
+	{
+		this(input, out, null);
+	}
+	
+	/**
+	 * Converts the given array to rawFile and refines it
+	 * @param input The raw script
+	 * @param out Where errors are written
+	 * @param base The directory imports are read from (null: the working directory)
+	 */
+	Parser(String[] input, Output out, File base)
 	{
 		console = out;
+		this.base = base;
 		for(String i : input) rawFile.add(i);
 		try
 		{
@@ -114,39 +235,280 @@ public class Parser
 		}
 	}
 	
+	/**
+	 * Creates a parser for an empty script. Lines are given afterwards through {@link #update(int, int, String[])},
+	 * which is how the editor keeps its script parsed between runs.
+	 * @param out The GUI Component to write errors to
+	 */
+	public Parser(JTextArea out)
+	{
+		console = Output.of(out);
+		blocks.add(new Block.Builder(new String[0], 0).build());
+		link(script);
+	}
+	
 	/** @returns The parsed script */
 	public Script getScript(){return script;}
+	
+	/**
+	 * Replaces lines of the script and parses only the blocks which hold those lines. 
+	 * Every other block keeps its Function and Conditional objects.
+	 * @param first The first line that changed (0 based)
+	 * @param removed The number of lines, starting at first, that were replaced
+	 * @param inserted The lines that replace them
+	 * @return The script with the changes, or null if the changed lines could not be parsed (the parser is then left unchanged)
+	 */
+	public Script update(int first, int removed, String[] inserted)
+	{
+		if(script == null) return null;
+		
+		int a = blockAt(first),
+			b = removed == 0 ? a : blockAt(first + removed - 1);
+		
+		//A line inserted right before a function declaration belongs to the block before it
+		if(0 < a && first == blocks.get(a).start) a--;
+		
+		ArrayList<String> region = new ArrayList<String>();
+		for(int i = a; i <= b; i++) region.addAll(Arrays.asList(blocks.get(i).lines));
+		
+		int offset = first - blocks.get(a).start;
+		region.subList(offset, offset + removed).clear();
+		region.addAll(offset, Arrays.asList(inserted));
+		
+		try
+		{
+			ArrayList<Block> parsed = split(region, blocks.get(a).start, a == 0);
+			
+			for(int i = b + 1; i < blocks.size(); i++) blocks.get(i).start += inserted.length - removed;
+			blocks.subList(a, b + 1).clear();
+			blocks.addAll(a, parsed);
+		}
+		catch(ScriptException e)
+		{
+			echo(e.getMessage());
+			return null;
+		}
+		
+		link(script);
+		return script;
+	}
+	
+	/**
+	 * Sets every variable, numeral and function of the script back to its declared value without parsing anything
+	 * @return The script
+	 */
+	public Script reset()
+	{
+		if(script != null) link(script);
+		return script;
+	}
 
 	/**
-	 * Reads rawFile line by line and parses commands/variables/functions/comments to refined
+	 * Splits rawFile into blocks and parses each of them
 	 * @throws ScriptException
 	 */
 	private void refine() throws ScriptException
 	{
-		for(String line : rawFile)
+		long start = System.nanoTime();
+		boolean failed = true;
+		try
+		{
+			blocks = split(rawFile, 0, true);
+			link(script);
+			failed = false;
+		}
+		finally
+		{
+			Metrics.parsed(System.nanoTime() - start, failed);
+			rawFile.clear(); //The blocks keep their lines (shared through the Interner); nothing reads the file again
+			rawFile.trimToSize();
+		}
+		
+		//for(String s : script.getRunnable()) System.out.println("Main: " + s);
+		//for(Function f : script.getFunctions()) for(String s : f.getRunnable()) System.out.println(f.getName() + ": " + s);
+	}
+	
+	/**
+	 * Splits lines into blocks at each function declaration and parses the blocks. 
+	 * Large scripts are parsed on the fork/join pool, each task parsing a run of blocks with a parser of its own;
+	 * the blocks are put back in order and the first error (by line) is thrown, just as it would be if they were parsed one by one.
+	 * @param lines The lines to split
+	 * @param start The index of the first line in the whole script
+	 * @param main true if the lines start with the main method
+	 * @return The parsed blocks, in order
+	 * @throws ScriptException
+	 */
+	private ArrayList<Block> split(List<String> lines, int start, boolean main) throws ScriptException
+	{
+		//Find the first line of each block
+		ArrayList<Integer> bounds = new ArrayList<Integer>();
+		bounds.add(0);
+		for(int i = 0; i != lines.size(); i++)
+			if(isFunction(lines.get(i).trim()) && (main || i != 0)) bounds.add(i);
+		bounds.add(lines.size());
+		
+		Block[] parsed = new Block[bounds.size() - 1];
+		
+		if(lines.size() < PARALLEL_LINES || parsed.length == 1)
+		{
+			for(int b = 0; b != parsed.length; b++) parsed[b] = block(lines, bounds, b, start, main);
+		}
+		else
+		{
+			ScriptException[] errors = new ScriptException[parsed.length];
+			ForkJoinPool.commonPool().invoke(new BlockTask(lines, bounds, start, main, parsed, errors, 0, parsed.length));
+			for(ScriptException e : errors) if(e != null) throw e;
+		}
+		
+		return new ArrayList<Block>(Arrays.asList(parsed));
+	}
+	
+	/**
+	 * Parses one of the blocks found by split
+	 * @param bounds The first line of each block, followed by the number of lines
+	 * @param b The index of the block
+	 */
+	private Block block(List<String> lines, List<Integer> bounds, int b, int start, boolean main) throws ScriptException
+	{
+		int from = bounds.get(b);
+		List<String> block = lines.subList(from, bounds.get(b + 1));
+		
+		if(main && b == 0) return parse(block, start + from, true);
+		return lazy ? defer(block, start + from) : parse(block, start + from, false);
+	}
+	
+	/** Parses a run of blocks, splitting it in half until it holds few enough lines */
+	private class BlockTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = -6047926130952279381L;
+		
+		private final List<String> lines;
+		private final List<Integer> bounds;
+		private final int start, from, to;
+		private final boolean main;
+		
+		/** Where the parsed blocks and the errors are written, by index of the block */
+		private final Block[] parsed;
+		private final ScriptException[] errors;
+		
+		BlockTask(List<String> lines, List<Integer> bounds, int start, boolean main, Block[] parsed, ScriptException[] errors, int from, int to)
+		{
+			this.lines = lines;
+			this.bounds = bounds;
+			this.start = start;
+			this.main = main;
+			this.parsed = parsed;
+			this.errors = errors;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			if(to - from == 1 || bounds.get(to) - bounds.get(from) <= PARALLEL_GRAIN)
+			{
+				Parser parser = new Parser(Parser.this);
+				for(int b = from; b != to; b++)
+				{
+					try{parsed[b] = parser.block(lines, bounds, b, start, main);}
+					catch(ScriptException e){errors[b] = e;}
+				}
+				return;
+			}
+			
+			int middle = (from + to) >>> 1;
+			invokeAll(new BlockTask(lines, bounds, start, main, parsed, errors, from, middle),
+					  new BlockTask(lines, bounds, start, main, parsed, errors, middle, to));
+		}
+	}
+	
+	/**
+	 * Makes the block of a function whose body is compiled when it first runs. Blocks which declare something
+	 * (the declarations belong to the whole script) are parsed right away.
+	 * @param lines The lines of the block
+	 * @param start The index of the first line in the whole script
+	 * @return The block, holding a function that hasn't been compiled
+	 * @throws ScriptException
+	 */
+	private Block defer(List<String> lines, int start) throws ScriptException
+	{
+		for(String line : lines)
+		{
+			String s = line.trim();
+			if(s.startsWith("::") || isImport(s) || s.startsWith("var:") || s.startsWith("num") || s.startsWith("arr:") || s.startsWith("map:"))
+				return parse(lines, start, false);
+		}
+		
+		final String[] body = Interner.strings(lines.toArray(new String[lines.size()]));
+		final int first = start;
+		final String name = Interner.string(body[0].trim().replaceAll("[^A-Za-z0-9]", ""));
+		
+		return new Block.Builder(body, start).function(new Function(name, new Function.Source()
+		{
+			protected Function compile(){return compileFunction(name, body, first);}
+		}, script)).build();
+	}
+	
+	/**
+	 * Compiles the body of a lazy function
+	 * @return The function, or an empty function if the body has an error (which is written to the console)
+	 */
+	private Function compileFunction(String name, String[] body, int start)
+	{
+		try{return new Parser(this).parse(Arrays.asList(body), start, false).function;}
+		catch(ScriptException e)
+		{
+			echo(e.getMessage());
+			return new Function(name, new String[0], script);
+		}
+	}
+	
+	/**
+	 * Reads a block line by line and parses commands/variables/functions/comments to refined
+	 * @param lines The lines of the block
+	 * @param start The index of the first line in the whole script
+	 * @param main true for the main method, false for a function
+	 * @return The parsed block
+	 * @throws ScriptException
+	 */
+	private Block parse(List<String> lines, int start, boolean main) throws ScriptException
+	{
+		scriptName = ""; fnName = ""; conSwap = null; ifSwap = ""; elseSwap = "";
+		openCondition = false;
+		refined.clear(); commandLines.clear(); conditions.clear(); calls.clear();
+		variableNames.clear(); variableValues.clear(); numeralNames.clear(); numeralValues.clear();
+		arrayNames.clear(); arrayValues.clear(); tableNames.clear(); tableValues.clear();
+		modules.clear(); aliases.clear();
+		lineNumber = start;
+		
+		for(String line : lines)
 		{
 			lineNumber ++; //New line
 			line = line.trim(); //Remove spaces prior to and following the line
 			
-			if(openCondition && isConditional(line) < 0)
-			{
-				openCondition = false;
-				conditions.add(new Conditional(script, conSwap, new String[] {ifSwap}, new String[]{elseSwap}));
-				conSwap  = ""; ifSwap   = ""; elseSwap = "";
-				
-				if(openFunction) fncSwapSpace.add("if " + (conditions.size() - 1));
-				else refined.add("if " + (conditions.size() - 1));
-			}
+			if(openCondition && isConditional(line) < 0) closeCondition();
 			
 			if(isIgnored(line)) line.length(); //Do nothing
 			else if(isNameLine(line)) //Set Script name if it hasn't already been set
 			{
-				if(scriptName.equals(""))
-				{
-					scriptName = line.substring(2).trim();
-					variable.add(new Variable("SCRIPT_NAME", scriptName));
-					variableNames.add("SCRIPT_NAME");
-				}
+				if(scriptName.equals("")) scriptName = line.substring(2).trim();
+			}
+			else if(isImport(line)) //import <file> [as <name>]
+			{
+				String[] split = line.split(" ");
+				if(split.length != 2 && !(split.length == 4 && split[2].equals("as"))) throw new ScriptException(lineNumber, "import <file> [as <name>]");
+				
+				String name = split[1].endsWith(".plusle.nk") ? split[1] : split[1] + ".plusle.nk";
+				File file = new File(name).isAbsolute() ? new File(name) : new File(base, name);
+				Parser module;
+				
+				try{module = ModuleCache.get(file, console, imports);}
+				catch(IOException e){throw new ScriptException(lineNumber, e.getMessage());}
+				if(module.getScript() == null) throw new ScriptException(lineNumber, "Could not import " + file.getName());
+				
+				modules.add(module);
+				aliases.add((split.length == 4 ? split[3] : file.getName().substring(0, file.getName().length() - ".plusle.nk".length())).replaceAll("[^A-Za-z0-9]", ""));
 			}
 			else if(0 <= isVariable(line)) //if is a variable of any kind
 			{				
@@ -164,30 +526,56 @@ public class Parser
 							else swap += temporary[i] + " ";
 						
 						/* Add the variable and it's name to their arrays */
-						variable.add(new Variable(temporary[1], swap));
 						variableNames.add(temporary[1]);
+						variableValues.add(swap);
 						break;
 					
 					case 2: // Double variable
 						if(temporary[3].trim().replaceAll("[0-9.]", "").equals("")) //If nothing remains, it is composed of numbers
 						{
-							numerals.add(new Numeral(temporary[1], Double.parseDouble(temporary[3])));
 							numeralNames.add(temporary[1]);
+							numeralValues.add(Double.parseDouble(temporary[3]));
 						}
 						else throw new ScriptException(lineNumber, "Not a numeral!"); //If something remains, it isn't a number
 						break;
+						
+					case 3: // Double array; either the values ("1 2 3") or the size ("[3]")
+						double[] values;
+						if(temporary.length == 4 && temporary[3].matches("\\[[0-9]+\\]"))
+							values = new double[Integer.parseInt(temporary[3].substring(1, temporary[3].length() - 1))];
+						else
+						{
+							values = new double[temporary.length - 3];
+							for(int i = 3; i != temporary.length; i++)
+								if(!temporary[i].equals("") && temporary[i].replaceAll("[0-9.]", "").equals("")) values[i - 3] = Double.parseDouble(temporary[i]);
+								else throw new ScriptException(lineNumber, "Not a numeral!");
+						}
+						
+						arrayNames.add(temporary[1]);
+						arrayValues.add(values);
+						break;
+						
+					case 4: // Table; either empty ("{}") or pairs of keys and values ("key:value")
+						String[] pairs = new String[0];
+						if(temporary.length != 4 || !temporary[3].equals("{}"))
+						{
+							pairs = new String[(temporary.length - 3) * 2];
+							for(int i = 3; i != temporary.length; i++)
+							{
+								int colon = temporary[i].indexOf(':');
+								if(colon <= 0) throw new ScriptException(lineNumber, "Not a key:value pair!");
+								pairs[(i - 3) * 2] = temporary[i].substring(0, colon);
+								pairs[(i - 3) * 2 + 1] = temporary[i].substring(colon + 1);
+							}
+						}
+						
+						tableNames.add(temporary[1]);
+						tableValues.add(pairs);
+						break;
 				}
 			}
-			else if(isFunction(line)) 
+			else if(isFunction(line)) //Only ever the first line of a function block
 			{
-				if(openFunction)
-				{
-					function.add(new Function(fnName, fncSwapSpace.toArray(new String[fncSwapSpace.size()]), script));
-					functionNames.add(fnName);
-					fncSwapSpace.clear();
-				}
-				
-				openFunction = true;
 				fnName = line.replaceAll("[^A-Za-z0-9]", "");
 			}
 			else if(0 <= isConditional(line))
@@ -197,13 +585,13 @@ public class Parser
 				switch(isConditional(line))
 				{
 					case 0:
-						if(openCondition)
-						{
-							conditions.add(new Conditional(script, conSwap, new String[] {ifSwap}, new String[]{elseSwap}));
-							conSwap  = ""; ifSwap   = ""; elseSwap = "";
-						}
-						ifSwap = split[4];
-						conSwap = split[1] + ":" + split[2] + ":" + split[3];
+						if(openCondition) closeCondition();
+						ifSwap = split[split.length - 1];
+						conLine = lineNumber;
+						
+						//if <a> <op> <b> <function>, or comparisons joined by and/or/not and parentheses
+						try{conSwap = Condition.parse(Arrays.copyOfRange(split, 1, split.length - 1));}
+						catch(IllegalArgumentException e){throw new ScriptException(lineNumber, e.getMessage());}
 						openCondition = true;
 						break;
 					case 1:
@@ -212,39 +600,222 @@ public class Parser
 						break;
 				}
 			}
-			else if(openFunction)
+			else if(0 <= isCall(line)) //call <function> [args] or <name> = call <function> [args]
 			{
-				fncSwapSpace.add(line); //Write commands to a function instead of the main method
+				String[] split = line.split(" +");
+				int first = isCall(line) == 0 ? 1 : 3;
+				
+				HostCall call;
+				try{call = HostFunctions.call(split[first], Arrays.copyOfRange(split, first + 1, split.length));}
+				catch(IllegalArgumentException e){throw new ScriptException(lineNumber, e.getMessage());}
+				
+				calls.add(call);
+				command("call " + (calls.size() - 1) + (first == 1 ? "" : " " + split[0]), lineNumber); //Never the same as a line of the script: those starting with "call" are all calls
 			}
 			else
 			{
-				refined.add(line); //Write commands to the script's main method
+				command(line, lineNumber); //Write commands to the block
+			}
+		}
+		
+		if(openCondition) closeCondition();
+		
+		double[] values = new double[numeralValues.size()];
+		for(int i = 0; i != values.length; i++) values[i] = numeralValues.get(i);
+		
+		//Shared with every other script holding the same text (line numbers are kept from the start of the block so they match too)
+		String[] commands = Interner.strings(refined.toArray(new String[refined.size()]));
+		int[] numbers = new int[commands.length];
+		for(int i = 0; i != numbers.length; i++) numbers[i] = commandLines.get(i) - start;
+		numbers = Interner.ints(numbers);
+		Conditional[] conditionals = conditions.toArray(new Conditional[conditions.size()]);
+		HostCall[] hostCalls = calls.toArray(new HostCall[calls.size()]);
+		
+		return new Block.Builder(Interner.strings(lines.toArray(new String[lines.size()])), start)
+				.scriptName(Interner.string(scriptName))
+				.commands(commands, numbers, conditionals, hostCalls)
+				.variables(Interner.strings(variableNames.toArray(new String[variableNames.size()])), Interner.strings(variableValues.toArray(new String[variableValues.size()])))
+				.numerals(Interner.strings(numeralNames.toArray(new String[numeralNames.size()])), values)
+				.arrays(Interner.strings(arrayNames.toArray(new String[arrayNames.size()])), arrayValues.toArray(new double[arrayValues.size()][]))
+				.tables(Interner.strings(tableNames.toArray(new String[tableNames.size()])), tableValues.toArray(new String[tableValues.size()][]))
+				.modules(modules.toArray(new Parser[modules.size()]), Interner.strings(aliases.toArray(new String[aliases.size()])))
+				.function(main ? null : new Function(Interner.string(fnName), commands, numbers, conditionals, hostCalls, script))
+				.build();
+	}
+	
+	/** Adds the open conditional statement to the block being parsed and writes the command which runs it */
+	private void closeCondition()
+	{
+		conditions.add(new Conditional(script, Interner.condition(conSwap), Interner.strings(new String[] {ifSwap}), Interner.strings(new String[]{elseSwap})));
+		command("if " + (conditions.size() - 1), conLine);
+		conSwap  = null; ifSwap   = ""; elseSwap = "";
+		openCondition = false;
+	}
+	
+	/**
+	 * Writes a command to the block being parsed
+	 * @param command The command
+	 * @param line The line it is written on (counted from 1 in the whole script)
+	 */
+	private void command(String command, int line)
+	{
+		refined.add(command);
+		commandLines.add(line);
+	}
+	
+	/**
+	 * Puts the blocks together into a script. Variables and numerals are created again from their declarations
+	 * so that each run starts with the declared values. Each imported module gets a script of its own (its view),
+	 * whose functions and data are added to the script under "module.name".
+	 * @param target The parser's own script (which keeps the functions of the blocks), or a new script, which gets copies of them
+	 */
+	private void link(Script target)
+	{
+		String name = "";
+		ArrayList<String> functionNames = new ArrayList<String>(),
+						  variableNames = new ArrayList<String>(),
+						  numeralNames  = new ArrayList<String>(),
+						  arrayNames    = new ArrayList<String>(),
+						  tableNames    = new ArrayList<String>();
+		ArrayList<Function> function = new ArrayList<Function>();
+		ArrayList<Variable> variable = new ArrayList<Variable>();
+		ArrayList<Numeral>  numerals = new ArrayList<Numeral>();
+		ArrayList<NumeralArray> arrays = new ArrayList<NumeralArray>();
+		ArrayList<Table>    tables   = new ArrayList<Table>();
+		
+		for(Block b : blocks)
+		{
+			if(name.equals("")) name = b.scriptName;
+			
+			if(b.function != null)
+			{
+				Function f = target == script ? b.function : b.function.copy(target);
+				f.setValue(null);
+				f.setLine(b.start);
+				function.add(f);
+				functionNames.add(f.getName());
 			}
 			
-			if(isConditional(line) == -1 && openCondition) openFunction = false;;
+			for(int i = 0; i != b.variableNames.length; i++)
+			{
+				variable.add(new Variable(b.variableNames[i], b.variableValues[i]));
+				variableNames.add(b.variableNames[i]);
+			}
+			
+			for(int i = 0; i != b.numeralNames.length; i++)
+			{
+				numerals.add(new Numeral(b.numeralNames[i], b.numeralValues[i]));
+				numeralNames.add(b.numeralNames[i]);
+			}
+			
+			for(int i = 0; i != b.arrayNames.length; i++)
+			{
+				arrays.add(new NumeralArray(b.arrayNames[i], b.arrayValues[i].clone()));
+				arrayNames.add(b.arrayNames[i]);
+			}
+			
+			for(int i = 0; i != b.tableNames.length; i++)
+			{
+				Table table = new Table(b.tableNames[i]);
+				String[] pairs = b.tableValues[i];
+				
+				//Values made of numbers are numerals, anything else is text
+				for(int k = 0; k < pairs.length; k += 2)
+				{
+					if(!pairs[k + 1].equals("") && pairs[k + 1].replaceAll("[0-9.]", "").equals("")) table.put(pairs[k], Double.parseDouble(pairs[k + 1]));
+					else table.put(pairs[k], pairs[k + 1]);
+				}
+				
+				tables.add(table);
+				tableNames.add(b.tableNames[i]);
+			}
+			
+			for(int m = 0; m != b.modules.length; m++)
+			{
+				Script view = b.modules[m].instance();
+				String prefix = b.aliases[m] + ".";
+				
+				for(Function f : view.getFunctions())	 {function.add(f); functionNames.add(prefix + f.getName());}
+				for(Variable v : view.getVariables())	 {variable.add(v); variableNames.add(prefix + v.getName());}
+				for(Numeral n : view.getNumerals())		 {numerals.add(n); numeralNames.add(prefix + n.getName());}
+				for(NumeralArray a : view.getArrays()) 	 {arrays.add(a);   arrayNames.add(prefix + a.getName());}
+				for(Table t : view.getTables())			 {tables.add(t);   tableNames.add(prefix + t.getName());}
+			}
 		}
 		
-		if(openFunction)
+		if(!name.equals(""))
 		{
-			function.add(new Function(fnName, fncSwapSpace.toArray(new String[fncSwapSpace.size()]), script));
-			functionNames.add(fnName);
+			variable.add(0, new Variable("SCRIPT_NAME", name));
+			variableNames.add(0, "SCRIPT_NAME");
 		}
 		
-		script.makeScript(
-				scriptName,
-				refined.toArray(new String[refined.size()]),
-				functionNames.toArray(new String[functionNames.size()]),
+		Block main = blocks.get(0);
+		Conditional[] conditions = main.conditions;
+		if(target != script)
+		{
+			conditions = new Conditional[main.conditions.length];
+			for(int i = 0; i != conditions.length; i++) conditions[i] = main.conditions[i].copy(target);
+		}
+		
+		target.makeScript(
+				Interner.string(name),
+				main.commands,
+				Interner.strings(functionNames.toArray(new String[functionNames.size()])),
 				function.toArray(new Function[function.size()]),
-				variableNames.toArray(new String[variableNames.size()]),
+				Interner.strings(variableNames.toArray(new String[variableNames.size()])),
 				variable.toArray(new Variable[variable.size()]),
-				numeralNames.toArray(new String[numeralNames.size()]),
+				Interner.strings(numeralNames.toArray(new String[numeralNames.size()])),
 				numerals.toArray(new Numeral[numerals.size()]),
-				conditions.toArray(new Conditional[conditions.size()])
+				Interner.strings(arrayNames.toArray(new String[arrayNames.size()])),
+				arrays.toArray(new NumeralArray[arrays.size()]),
+				Interner.strings(tableNames.toArray(new String[tableNames.size()])),
+				tables.toArray(new Table[tables.size()]),
+				conditions,
+				main.calls,
+				main.commandLines
 		);
+	}
+	
+	/**
+	 * Creates a new script from the parsed blocks, sharing their commands. This is how a module is given to each script importing it,
+	 * and how a script is run again from its declared values without being parsed again
+	 * @return The new script (a view of the parsed script), null if the script could not be parsed
+	 */
+	public Script instance()
+	{
+		if(script == null) return null;
 		
-		//for(String s : refined) System.out.println("Main: " + s);
-		//for(Function f : function) for(String s : f.getRunnable()) System.out.println(f.getName() + ": " + s);
-		//for(int i = 0; i != variable.size(); i++) System.out.println(variable.get(i).getName() + ":" + variableNames.get(i));
+		Script view = new Script();
+		link(view);
+		return view;
+	}
+	
+	/**
+	 * @param file The canonical path of a script file
+	 * @return true if the script imports the file, itself or through the modules it imports
+	 */
+	boolean dependsOn(String file)
+	{
+		for(Block b : blocks) for(Parser module : b.modules)
+			if(file.equals(module.path) || module.dependsOn(file)) return true;
+		return false;
+	}
+	
+	/**
+	 * Finds the block which holds a line
+	 * @param line The index of the line
+	 * @return The index of the last block starting at or before the line
+	 */
+	private int blockAt(int line)
+	{
+		int low = 0, high = blocks.size() - 1;
+		while(low < high)
+		{
+			int mid = (low + high + 1) / 2;
+			if(blocks.get(mid).start <= line) low = mid;
+			else high = mid - 1;
+		}
+		return low;
 	}
 	
 	/** Set rawFile to store all lines from a script file
@@ -253,9 +824,12 @@ public class Parser
 	 */
 	private void readFile(String scriptFile) throws Exception
 	{
-		Scanner scan = new Scanner(new BufferedReader(new FileReader(scriptFile)));
-		while(scan.hasNext()) rawFile.add(scan.nextLine());
-		scan.close();
+		BufferedReader read = new BufferedReader(new FileReader(scriptFile));
+		try
+		{
+			for(String line = read.readLine(); line != null; line = read.readLine()) rawFile.add(line);
+		}
+		finally{read.close();}
 	}
 	
 	/**
@@ -263,19 +837,28 @@ public class Parser
 	 * @param string
 	 * @return true if matches function syntax
 	 */
-	private boolean isFunction(String string){return string.replaceAll(" ", "").startsWith("[") && string.endsWith("]");}
+	private boolean isFunction(String string)
+	{
+		if(!string.endsWith("]")) return false;
+		
+		int i = 0;
+		while(i != string.length() && string.charAt(i) == ' ') i++;
+		return string.charAt(i) == '[';
+	}
 	
 	/**
 	 * Returns the type of variable
 	 * @param string Line to read
-	 * @return 0: Variable without enough arguments; 1: String; 2: Double
+	 * @return 0: Variable without enough arguments; 1: String; 2: Double; 3: Double array; 4: Table
 	 */
 	private int isVariable(String string)
 	{
 		String s = string.trim();
-		if(s.split(" ").length < 4){if(s.startsWith("var:") || s.startsWith("num")) return 0;}
+		if(s.split(" ").length < 4){if(s.startsWith("var:") || s.startsWith("num") || s.startsWith("arr:") || s.startsWith("map:")) return 0;}
 		else if(s.startsWith("var:")) return 1;
 		else if(s.startsWith("num:")) return 2;
+		else if(s.startsWith("arr:")) return 3;
+		else if(s.startsWith("map:")) return 4;
 		return -1;
 	}
 	
@@ -292,18 +875,29 @@ public class Parser
 	private int isConditional(String string)
 	{
 		String[] split = string.split(" ");
-		if(split[0].equals("if") && split.length == 5) 		  return 0;
+		if(split[0].equals("if") && split.length >= 5) 		  return 0;
 		else if(split[0].equals("else") && split.length == 2) return 1;
 		return -1;
 	}
 	
+	/** @return -1 if false; 0 if "call", 1 if "name = call" (only of a registered function: otherwise the name is given the text "call ...") */
+	private int isCall(String string)
+	{
+		String[] split = string.split(" +");
+		if(split[0].equals("call") && split.length >= 2) return 0;
+		else if(split.length >= 4 && split[1].equals("=") && split[2].equals("call") && HostFunctions.isRegistered(split[3])) return 1;
+		return -1;
+	}
+	
+	/** @return true if the line imports a module */
+	private boolean isImport(String string){return string.startsWith("import ");}
+	
 	/** @return true if a name is declared */
 	private boolean isNameLine(String string){return string.startsWith("::");}
 	
 	private void echo(Object o)
 	{
-		if(console != null) console.append(o + "\n");
-		else System.out.println(o);
+		console.println(o + "");
 	}
 
 	/** Special exception format for the parser (states line number and message) */
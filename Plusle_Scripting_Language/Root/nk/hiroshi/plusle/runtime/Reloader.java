@@ -0,0 +1,252 @@
+package nk.hiroshi.plusle.runtime;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import nk.hiroshi.plusle.script.cmd.Script;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Keeps the scripts of a directory loaded and parses them again when their files change, so a host can take in
+ * a new version of a script without being restarted. <br>
+ * Every .plusle.nk file of the directory is parsed when the reloader is made. A thread then watches the directory;
+ * once a file has been written (and then left alone for {@link #QUIET} ms) it is parsed again, along with every
+ * loaded script importing it, and the new version takes the place of the old one in a single step. {@link #instance(String)}
+ * gives each new execution a script of its own from the version loaded at that moment, so runs which already started
+ * finish on the version they started with. <br>
+ * A version which can't be parsed is never swapped in: its errors are written and the old version stays live.
+ * A file which is deleted also keeps its last version (an editor saving by renaming deletes the file first). <br>
+ * Each reload writes how long it took from the file being modified to the new version being live, and {@link #report()}
+ * sums them up. Modules outside the directory aren't watched; they are read again when a script importing them is.
+ * @since 19 October, 2026
+ */
+public final class Reloader implements Closeable
+{
+	/** A changed file is parsed once it hasn't been written for this many milliseconds */
+	public static final long QUIET = 25;
+
+	private static final String EXTENSION = ".plusle.nk";
+
+	private final Path directory;
+	private final Output console;
+	private final WatchService watcher;
+	private final Thread thread;
+
+	/** The live version of each script, by file name */
+	private final ConcurrentHashMap<String, Parser> scripts = new ConcurrentHashMap<String, Parser>();
+
+	/** Versions swapped in, and changes kept out because they could not be parsed */
+	private final LongAdder reloads = new LongAdder(), failures = new LongAdder();
+
+	/** Milliseconds from files being modified to their new version being live: summed, the most and the last */
+	private final AtomicLong total = new AtomicLong(), most = new AtomicLong(), last = new AtomicLong(-1);
+
+	/**
+	 * Loads the scripts of a directory and starts watching it
+	 * @param directory The directory
+	 * @param console Where errors in the scripts, and reloads, are written
+	 * @throws IOException If the directory can't be watched
+	 */
+	public Reloader(File directory, Output console) throws IOException
+	{
+		this.directory = directory.getAbsoluteFile().toPath();
+		this.console = console;
+
+		watcher = FileSystems.getDefault().newWatchService();
+		this.directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+		File[] files = this.directory.toFile().listFiles();
+		if(files != null) for(File f : files) if(f.getName().endsWith(EXTENSION))
+		{
+			Parser parser = parse(f.getName());
+			if(parser != null) scripts.put(f.getName(), parser);
+		}
+
+		thread = new Thread(new Runnable()
+		{
+			public void run(){watch();}
+		}, "Plusle Reloader");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @param name The file name of a script ("name.plusle.nk" or "name")
+	 * @return A new script from the live version, for one execution; null if there is no such script
+	 */
+	public Script instance(String name)
+	{
+		Parser parser = scripts.get(name.endsWith(EXTENSION) ? name : name + EXTENSION);
+		return parser == null ? null : parser.instance();
+	}
+
+	/** @return The file names of the scripts loaded */
+	public Set<String> names(){return Collections.unmodifiableSet(new TreeSet<String>(scripts.keySet()));}
+
+	/** Stops watching the directory; the scripts loaded stay as they are */
+	public void close() throws IOException
+	{
+		watcher.close();
+		try{thread.join();}
+		catch(InterruptedException e){Thread.currentThread().interrupt();}
+	}
+
+	/** @return Versions swapped in, changes kept out, and the time from a file being modified to its new version being live */
+	public String report()
+	{
+		long n = reloads.sum();
+		return String.format("%d reloads, %d kept out by errors; latency %s ms mean, %d ms most, %s ms last",
+							 n, failures.sum(), n == 0 ? "-" : String.format("%.1f", total.get() / (double) n), most.get(),
+							 last.get() < 0 ? "-" : Long.toString(last.get()));
+	}
+
+	/** Waits for changes to the directory and reloads the files changed, until the reloader is closed */
+	private void watch()
+	{
+		try
+		{
+			while(true)
+			{
+				//The files changed, with the time each was first seen changing; events are gathered until the directory is quiet
+				Map<String, Long> changed = new LinkedHashMap<String, Long>();
+				boolean overflow = false;
+
+				for(WatchKey key = watcher.take(); key != null; key = watcher.poll(QUIET, TimeUnit.MILLISECONDS))
+				{
+					for(WatchEvent<?> event : key.pollEvents())
+					{
+						if(event.kind() == StandardWatchEventKinds.OVERFLOW) overflow = true;
+						else
+						{
+							String name = event.context().toString();
+							if(name.endsWith(EXTENSION) && !changed.containsKey(name)) changed.put(name, System.currentTimeMillis());
+						}
+					}
+					key.reset();
+				}
+
+				if(overflow) //Events were lost: every file is read again
+				{
+					File[] files = directory.toFile().listFiles();
+					if(files != null) for(File f : files)
+						if(f.getName().endsWith(EXTENSION) && !changed.containsKey(f.getName())) changed.put(f.getName(), System.currentTimeMillis());
+				}
+
+				for(Map.Entry<String, Long> e : changed.entrySet()) reload(e.getKey(), e.getValue());
+			}
+		}
+		catch(InterruptedException e){/* Stopped */}
+		catch(ClosedWatchServiceException e){/* Closed */}
+	}
+
+	/**
+	 * Parses a changed script again, then every loaded script importing it, and swaps in each one which parses
+	 * @param name The file name
+	 * @param seen When the change was first seen (milliseconds)
+	 */
+	private void reload(String name, long seen)
+	{
+		File file = directory.resolve(name).toFile();
+		if(!file.isFile()) return; //Deleted: the last version stays
+
+		//A file's modification time may be coarser than the events (or later than them, if it was written again since)
+		long modified = Math.min(file.lastModified(), seen);
+		if(modified <= 0) modified = seen;
+
+		if(!swap(name, modified)) return;
+
+		String path;
+		try{path = file.getCanonicalPath();}
+		catch(IOException e){return;}
+
+		ArrayList<String> importers = new ArrayList<String>();
+		for(Map.Entry<String, Parser> e : scripts.entrySet())
+			if(!e.getKey().equals(name) && e.getValue().dependsOn(path)) importers.add(e.getKey());
+		for(String importer : importers) swap(importer, modified);
+	}
+
+	/**
+	 * Parses a script and, if it parses, makes it the live version
+	 * @param name The file name
+	 * @param modified When the change which led to the parse was made (milliseconds)
+	 * @return true if the new version is live
+	 */
+	private boolean swap(String name, long modified)
+	{
+		long start = System.nanoTime();
+		Parser parser = parse(name);
+
+		if(parser == null)
+		{
+			failures.increment();
+			console.println("Kept the live version of " + name + ": the new one could not be parsed");
+			return false;
+		}
+
+		scripts.put(name, parser);
+		long latency = Math.max(0, System.currentTimeMillis() - modified);
+		reloads.increment();
+		total.addAndGet(latency);
+		last.set(latency);
+		for(long m = most.get(); m < latency && !most.compareAndSet(m, latency); m = most.get());
+
+		console.println(String.format("Reloaded %s: live %d ms after it changed (parsed in %.1f ms)", name, latency, (System.nanoTime() - start) / 1e6));
+		return true;
+	}
+
+	/** @return The parser of a script of the directory, null if it could not be parsed */
+	private Parser parse(String name)
+	{
+		Parser parser = new Parser(directory.resolve(name).toString(), console, false, Collections.<String>emptySet());
+		return parser.getScript() == null ? null : parser;
+	}
+
+	/**
+	 * Loads the scripts of a directory and reloads them as they change; with a script, runs it every interval to show
+	 * which version is live. <br>
+	 * Usage: Reloader &lt;directory&gt; [script] [interval in ms]
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		if(args.length < 1)
+		{
+			System.out.println("Usage: Reloader <directory> [script] [interval in ms]");
+			return;
+		}
+
+		Reloader reloader = new Reloader(new File(args[0]), Output.CONSOLE);
+		System.out.println("Watching " + reloader.names());
+
+		long interval = args.length < 3 ? 1000 : Long.parseLong(args[2]);
+		while(true)
+		{
+			Thread.sleep(interval);
+			if(1 < args.length)
+			{
+				Script script = reloader.instance(args[1]);
+				if(script != null) new Interpreter(script, Output.CONSOLE).run();
+			}
+			else System.out.println(reloader.report());
+		}
+	}
+}
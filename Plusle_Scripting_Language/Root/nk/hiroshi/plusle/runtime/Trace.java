@@ -0,0 +1,226 @@
+package nk.hiroshi.plusle.runtime;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Records what an {@link Interpreter} does (functions entered and left, branches taken, values written and errors)
+ * in a ring buffer which is allocated once, so only the latest records are kept. <br>
+ * A record is three longs: the time (System.nanoTime), the kind and the name (as an index into a table of names)
+ * and a value. The buffer is written to a file on demand, or when the script fails if a file is set
+ * with {@link #dumpOnError(File)}. The file is read back with {@link #decode(InputStream, PrintStream)},
+ * or from the command line: java nk.hiroshi.plusle.runtime.Trace file
+ * @since 19 October, 2026
+ */
+public final class Trace
+{
+	/** Kinds of records */
+	public static final int ENTER = 1, EXIT = 2, BRANCH = 3, NUMERAL = 4, VARIABLE = 5, ERROR = 6;
+
+	/** Names of the kinds of records, by kind */
+	private static final String[] KINDS = {"", "enter", "exit", "branch", "numeral", "variable", "error"};
+
+	/** Written at the start of a trace file */
+	private static final int MAGIC = 0x504C5452; //PLTR
+
+	/** The records: time, kind and name, value */
+	private final long[] buffer;
+
+	/** The number of records the buffer holds - 1 (the number is a power of 2) */
+	private final int mask;
+
+	/** The number of records written since the trace started (the next record goes at next & mask) */
+	private final AtomicLong next = new AtomicLong();
+
+	/** The names in records, by index */
+	private final ArrayList<String> names = new ArrayList<String>();
+	private final ConcurrentHashMap<String, Integer> indexes = new ConcurrentHashMap<String, Integer>();
+
+	/** Where the trace is written when a script fails (null to keep it) */
+	private volatile File dump;
+
+	/**
+	 * @param capacity The number of records kept (rounded up to a power of 2)
+	 */
+	public Trace(int capacity)
+	{
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		buffer = new long[size * 3];
+		mask = size - 1;
+	}
+
+	/** Records that a function is run */
+	public void enter(String function){record(ENTER, function, 0L);}
+
+	/** Records that a function has ended */
+	public void exit(String function){record(EXIT, function, 0L);}
+
+	/** Records the value of a condition */
+	public void branch(String condition, boolean value){record(BRANCH, condition, value ? 1L : 0L);}
+
+	/** Records a value written to a numeral */
+	public void write(String numeral, double value){record(NUMERAL, numeral, Double.doubleToRawLongBits(value));}
+
+	/** Records a value written to a variable by its length (-1 for null; see {@link nk.hiroshi.plusle.script.data.Variable#length()}) */
+	public void write(String variable, int length){record(VARIABLE, variable, length);}
+
+	/**
+	 * Records an error, and writes the trace if a file is set
+	 * @param message The error message
+	 */
+	public void error(String message)
+	{
+		record(ERROR, message, 0L);
+
+		File file = dump;
+		if(file == null) return;
+		try{dump(file);}
+		catch(IOException e){System.err.println("Could not write the trace: " + e.getMessage());}
+	}
+
+	/** @param file Where the trace is written when a script fails, null to keep it in memory */
+	public void dumpOnError(File file){dump = file;}
+
+	/** @return The number of records written since the trace started (including those which were overwritten) */
+	public long count(){return next.get();}
+
+	/**
+	 * Writes a record
+	 * @param kind The kind of record
+	 * @param name The name of the function, condition, numeral or variable, or the error message
+	 * @param value The value
+	 */
+	private void record(int kind, String name, long value)
+	{
+		long time = System.nanoTime();
+		int at = (int) (next.getAndIncrement() & mask) * 3;
+		buffer[at] = time;
+		buffer[at + 1] = (long) index(name) << 8 | kind;
+		buffer[at + 2] = value;
+	}
+
+	/** @return The index of a name, adding it to the table of names if it is new */
+	private int index(String name)
+	{
+		Integer index = indexes.get(name);
+		if(index != null) return index;
+
+		synchronized(names)
+		{
+			index = indexes.get(name);
+			if(index == null)
+			{
+				names.add(name);
+				index = names.size() - 1;
+				indexes.put(name, index);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Writes the trace to a file: the names, then the records kept from the oldest to the newest.
+	 * Records written while the trace is written may be torn; it is meant to be written once the script has stopped
+	 * @param file The file
+	 * @throws IOException If the file can't be written
+	 */
+	public void dump(File file) throws IOException
+	{
+		long end = next.get(), start = Math.max(0, end - (mask + 1));
+
+		String[] table;
+		synchronized(names){table = names.toArray(new String[names.size()]);}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(table.length);
+			for(String name : table) out.writeUTF(name.length() < 16384 ? name : name.substring(0, 16384));
+
+			out.writeLong(end - start);
+			for(long i = start; i != end; i++)
+			{
+				int at = (int) (i & mask) * 3;
+				out.writeLong(buffer[at]);
+				out.writeLong(buffer[at + 1]);
+				out.writeLong(buffer[at + 2]);
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Prints a trace written by {@link #dump(File)} as a timeline: the time since the first record (in microseconds),
+	 * the kind of record and its name and value, indented by how deep in functions it happened
+	 * @param in The trace
+	 * @param out Where the timeline is printed
+	 * @throws IOException If the trace can't be read or isn't a trace
+	 */
+	public static void decode(InputStream in, PrintStream out) throws IOException
+	{
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+		if(data.readInt() != MAGIC) throw new IOException("Not a trace");
+
+		String[] table = new String[data.readInt()];
+		for(int i = 0; i != table.length; i++) table[i] = data.readUTF();
+
+		long count = data.readLong(), first = 0;
+		int depth = 0;
+		for(long i = 0; i != count; i++)
+		{
+			long time = data.readLong(), header = data.readLong(), value = data.readLong();
+			int kind = (int) (header & 0xFF), name = (int) (header >>> 8);
+			if(i == 0) first = time;
+
+			if(kind == EXIT && 0 < depth) depth--;
+
+			StringBuilder line = new StringBuilder(String.format("%12.3f us  ", (time - first) / 1000.0));
+			for(int d = 0; d < depth; d++) line.append("  ");
+			line.append(0 < kind && kind < KINDS.length ? KINDS[kind] : "?").append(' ');
+			line.append(0 <= name && name < table.length ? table[name] : "#" + name);
+
+			switch(kind)
+			{
+				case BRANCH:   line.append(value != 0 ? " -> true" : " -> false"); break;
+				case NUMERAL:  line.append(" = ").append(Double.longBitsToDouble(value)); break;
+				case VARIABLE: line.append(value < 0 ? " = null" : " = (" + value + " characters)"); break;
+			}
+			out.println(line);
+
+			if(kind == ENTER) depth++;
+		}
+	}
+
+	/**
+	 * Prints the timeline of trace files
+	 * @param args The files
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length == 0) System.out.println("Usage: java nk.hiroshi.plusle.runtime.Trace <trace file> ...");
+		for(String name : args)
+		{
+			InputStream in = new FileInputStream(name);
+			try{decode(in, System.out);}
+			finally{in.close();}
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package nk.hiroshi.plusle.script.cmd;
+
+import java.util.ArrayList;
+
+import nk.hiroshi.plusle.script.data.Numeral;
+import nk.hiroshi.plusle.script.data.Variable;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * The condition of a conditional statement, parsed once into a tree: comparisons ("$a < 3") joined by "and", "or",
+ * "not" and parentheses. "and" and "or" stop as soon as the result is known. <br>
+ * A comparison is read as it always has been: if either side is a numeral, both sides are numbers (a number as written,
+ * 0 for anything else); otherwise if either side is a variable, both sides are text. Anything else is false. <br>
+ * Each operand remembers where its numeral or variable is in the script it was last read from,
+ * so evaluating a condition compares values instead of searching the names of the script.
+ * @since 19 October, 2026
+ */
+public abstract class Condition
+{
+	/**
+	 * @param script The script to read values from
+	 * @return The value of the condition
+	 */
+	public abstract boolean test(Script script);
+
+	/**
+	 * Parses a condition
+	 * @param tokens The condition split at spaces, such as {"$a", "<", "3", "and", "not", "(", "$b", "=", "x", ")"}.
+	 * Parentheses may be written against the operands ("($b" "x)")
+	 * @return The condition
+	 * @throws IllegalArgumentException If the condition can't be parsed
+	 */
+	public static Condition parse(String[] tokens)
+	{
+		ArrayList<String> list = new ArrayList<String>();
+		for(String t : tokens)
+		{
+			while(t.startsWith("(") && 1 < t.length()){list.add("("); t = t.substring(1);}
+			int close = 0;
+			while(t.endsWith(")") && 1 < t.length()){t = t.substring(0, t.length() - 1); close++;}
+			if(!t.equals("")) list.add(t);
+			for(; close != 0; close--) list.add(")");
+		}
+
+		Reader reader = new Reader(list);
+		Condition c = reader.or();
+		if(reader.next < list.size()) throw new IllegalArgumentException("Unexpected " + list.get(reader.next) + " in condition");
+		return c;
+	}
+
+	/**
+	 * A single comparison
+	 * @param a The left side ("$name" or a value)
+	 * @param operation The operator (see {@link Conditional#getOperation(String)})
+	 * @param b The right side
+	 * @return The comparison
+	 */
+	public static Comparison compare(String a, String operation, String b){return new Comparison(a, operation, b);}
+
+	/**
+	 * Parses the operation symbol to a number
+	 * @param input The string to parse
+	 * @return 0 to 5 (!=, =, <, <=, >, =>); -1 not an operation
+	 */
+	static int operation(String input)
+	{
+		if(input.equals("!=")) 		return 0;
+		else if(input.equals("=")) 	return 1;
+		else if(input.equals("<"))  return 2;
+		else if(input.equals("<=")) return 3;
+		else if(input.equals(">"))  return 4;
+		else if(input.equals("=>")) return 5;
+		return -1;
+	}
+	
+	/** Reads the tokens of a condition: or = and {"or" and}; and = not {"and" not}; not = "not" not | "(" or ")" | comparison */
+	private static class Reader
+	{
+		private final ArrayList<String> tokens;
+		private int next;
+
+		private Reader(ArrayList<String> tokens){this.tokens = tokens;}
+
+		private Condition or()
+		{
+			Condition c = and();
+			while(is("or")){next++; c = new Or(c, and());}
+			return c;
+		}
+
+		private Condition and()
+		{
+			Condition c = not();
+			while(is("and")){next++; c = new And(c, not());}
+			return c;
+		}
+
+		private Condition not()
+		{
+			if(is("not")){next++; return new Not(not());}
+			if(is("("))
+			{
+				next++;
+				Condition c = or();
+				if(!is(")")) throw new IllegalArgumentException("Missing ) in condition");
+				next++;
+				return c;
+			}
+
+			if(tokens.size() < next + 3) throw new IllegalArgumentException("Incomplete condition");
+			next += 3;
+			return new Comparison(tokens.get(next - 3), tokens.get(next - 2), tokens.get(next - 1));
+		}
+
+		private boolean is(String token){return next < tokens.size() && tokens.get(next).equals(token);}
+	}
+
+	/** Two conditions which are both true (the second is only read when the first is true) */
+	public static final class And extends Condition
+	{
+		private final Condition a, b;
+
+		private And(Condition a, Condition b){this.a = a; this.b = b;}
+
+		public Condition getLeft(){return a;}
+		public Condition getRight(){return b;}
+
+		@Override
+		public boolean test(Script script){return a.test(script) && b.test(script);}
+
+		@Override
+		public String toString(){return "(" + a + " and " + b + ")";}
+	}
+
+	/** Two conditions of which either is true (the second is only read when the first is false) */
+	public static final class Or extends Condition
+	{
+		private final Condition a, b;
+
+		private Or(Condition a, Condition b){this.a = a; this.b = b;}
+
+		public Condition getLeft(){return a;}
+		public Condition getRight(){return b;}
+
+		@Override
+		public boolean test(Script script){return a.test(script) || b.test(script);}
+
+		@Override
+		public String toString(){return "(" + a + " or " + b + ")";}
+	}
+
+	/** The opposite of a condition */
+	public static final class Not extends Condition
+	{
+		private final Condition c;
+
+		private Not(Condition c){this.c = c;}
+
+		public Condition getCondition(){return c;}
+
+		@Override
+		public boolean test(Script script){return !c.test(script);}
+
+		@Override
+		public String toString(){return "not " + c;}
+	}
+
+	/** A comparison of two values */
+	public static final class Comparison extends Condition
+	{
+		private final Operand a, b;
+
+		/** The operation; 0 to 5 (see {@link Conditional#getOperation(String)}), -1 for none (always false) */
+		private final int operation;
+		private final String operator;
+
+		private Comparison(String a, String operation, String b)
+		{
+			this.a = new Operand(a);
+			this.b = new Operand(b);
+			this.operator = operation;
+			this.operation = Condition.operation(operation);
+		}
+
+		/** @return The left side as written */
+		public String getLeft(){return a.token;}
+
+		/** @return The right side as written */
+		public String getRight(){return b.token;}
+
+		/** @return The operation: 0 to 5 (see {@link Conditional#getOperation(String)}), -1 for none */
+		public int getOperation(){return operation;}
+
+		@Override
+		public boolean test(Script script)
+		{
+			Numeral na = a.numeral(script), nb = b.numeral(script);
+			if(na != null || nb != null)
+			{
+				double x = a.literal ? a.number() : na != null ? na.getDouble() : 0.0,
+					   y = b.literal ? b.number() : nb != null ? nb.getDouble() : 0.0;
+
+				switch(operation)
+				{
+					case 0: return x != y;
+					case 1: return x == y;
+					case 2: return x <  y;
+					case 3: return x <= y;
+					case 4: return x >  y;
+					case 5: return x >= y;
+				}
+				return false;
+			}
+
+			Variable va = a.variable(script), vb = b.variable(script);
+			if(va != null || vb != null)
+			{
+				String x = va != null ? va.getValue() : a.token,
+					   y = vb != null ? vb.getValue() : b.token;
+
+				switch(operation)
+				{
+					case 0: return !x.equals(y);
+					case 1: return x.equals(y);
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public String toString(){return a.token + " " + operator + " " + b.token;}
+	}
+
+	/** A side of a comparison: a numeral or variable ("$name"), or a value as written */
+	private static final class Operand
+	{
+		/** The side as written, and the name it refers to (the first character, "$", is not part of it) */
+		private final String token, name;
+
+		/** true if the side is written as a number; it is then never read as a numeral */
+		private final boolean literal;
+		
+		/** The number as written (null if it isn't one, such as "1.2.3") */
+		private final Double number;
+
+		/** Where the numeral and the variable were found in the names of the script last read from */
+		private Slot numeral = Slot.NONE, variable = Slot.NONE;
+
+		private Operand(String token)
+		{
+			if(token.equals("")) throw new IllegalArgumentException("Incomplete condition");
+			this.token = token;
+			name = token.substring(1);
+			literal = name.replaceAll("[0-9.]", "").equals("");
+			
+			Double n = null;
+			try{if(literal) n = Double.parseDouble(token);}
+			catch(NumberFormatException e){n = null;} //Only an error if it's compared to a numeral (as text it's fine)
+			number = n;
+		}
+		
+		/** @return The number as written */
+		private double number()
+		{
+			if(number == null) throw new NumberFormatException("For input string: \"" + token + "\"");
+			return number;
+		}
+
+		private Numeral numeral(Script script)
+		{
+			Slot s = numeral;
+			if(!s.isFor(script.getNumeralNames())) numeral = s = Slot.numeral(script, name);
+			return s.index < 0 ? null : script.getNumeral(s.index);
+		}
+
+		private Variable variable(Script script)
+		{
+			Slot s = variable;
+			if(!s.isFor(script.getVariableNames())) variable = s = Slot.variable(script, name);
+			return s.index < 0 ? null : script.getVariable(s.index);
+		}
+	}
+}
@@ -1,8 +1,5 @@
 package nk.hiroshi.plusle.script.cmd;
 
-import nk.hiroshi.plusle.script.data.Numeral;
-import nk.hiroshi.plusle.script.data.Variable;
-
 /* This file is part of Plusle Scripting Language *
  * Copyright (C) 2014-2015 Ryan Kerr              *
  * Please refer to the MIT license                */
@@ -29,162 +26,89 @@ public class Conditional implements Commander
 	private final String[] trueRun, //The command to run when the condition is evaluated as true
 						   elseRun; //The command to run when the condition is evaluated as false
 	
+	/** The given condition, parsed */
+	private final Condition test;
+	
 	/**
 	 * Creates a Conditional statement with a parent script, conditional statement, and commands
 	 * @param parent - Script to read values from
-	 * @param c Conditional Statement
+	 * @param c Conditional Statement ("a:operator:b")
 	 * @param t Function to run when condition is true
 	 * @param f Function to run when condition is false
 	 */
 	public Conditional(Script parent, String c, String[] t, String[] f) 
 	{
-		trueRun = t;
-		elseRun = f;
-		condition = c;
-		this.parent = parent;
+		this(parent, c, compare(c), t, f);
 	}
 	
 	/**
-	 * Sets the value to the value of the condition in it's current state
-	 * @return true when condition is true, false when condition is false;
+	 * Creates a Conditional statement from a parsed condition (see {@link Condition#parse(String[])})
+	 * @param parent - Script to read values from
+	 * @param c The condition
+	 * @param t Function to run when condition is true
+	 * @param f Function to run when condition is false
 	 */
-	private boolean evaluate()
+	public Conditional(Script parent, Condition c, String[] t, String[] f)
 	{
-		value = value();
-		return value;
+		this(parent, c.toString(), c, t, f);
 	}
 	
-	/**
-	 * Process the conditional statement. It is either read as a variable condition or numeral condition <br>
-	 * I have only wrote this to read variables and numerals; functions require a parser
-	 * @return True when condition is true, false when condition is false
-	 */
-	private boolean value()
+	private Conditional(Script parent, String c, Condition test, String[] t, String[] f)
 	{
-		String[] s = condition.split(":");
-		
-		String swapA = s[0].substring(1),
-			   swapB = s[2].substring(1);
-	
-/*		//Inefficient section of code
-		if(parent.isVariable(swapA) && parent.isVariable(swapB))
-		{
-			Variable a = parent.getVariable(swapA),
-					 b = parent.getVariable(swapB);
-			
-			if(s[1].equals("=")) 	   return condition(EQUALS, a, b);
-			else if(s[1].equals("!=")) return condition(NOT_EQUAL, a, b);
-			else return false;
-		}
-		else if(parent.isNumeral(swapA) && parent.isNumeral(swapB))
-		{
-			Numeral a = parent.getNumeral(swapA),
-					b = parent.getNumeral(swapB);
-			
-			int type = getOperation(s[1]);
-			if(0 < type) return condition(type, a, b);
-			else return false;
-		} 
-		else*/ 
-		
-		//System.out.println(parent.isNumeral(swapA) ? swapA : swapA);
-		//System.out.println(parent.isVariable(swapA) ? "True" : "false");
-		
-		//Numeral operations. Allows for a numeral and a numeral to compared or a numeral and a number
-		if(parent.isNumeral(swapA) || parent.isNumeral(swapB))
-		{
-			Numeral a, b;
-			if(swapA.replaceAll("[0-9.]", "").equals("")) a = new Numeral("op", Double.parseDouble(s[0]));
-			else if(parent.isNumeral(swapA)) a = parent.getNumeral(swapA);
-			else a = new Numeral("null", 0.0);
-			
-			if(swapB.replaceAll("[0-9.]", "").equals("")) b = new Numeral("op", Double.parseDouble(s[2]));
-			else if(parent.isNumeral(swapB)) b = parent.getNumeral(swapB);
-			else b = new Numeral("null", 0.0);
-			
-			int type = getOperation(s[1]);
-			if(0 <= type) return condition(type, a, b);
-			else return false;
-		}
-		
-		//Variable operations. Allows for a variable and a variable to be compared or a variable and a string
-		else if(parent.isVariable(swapA) || parent.isVariable(swapB))
-		{
-			Variable a, b;
-			if(parent.isVariable(swapA)) a = parent.getVariable(swapA);
-			else a = new Variable("null", s[0]);
-			
-			if(parent.isVariable(swapB)) b = parent.getVariable(swapB);
-			else b = new Variable("null", s[2]);
-			
-			int type = getOperation(s[1]);
-			if(0 <= type) return condition(type, a, b);
-			else return false;
-		}
-		return false; //Standard number to number or variable to variable operations are not supported
+		trueRun = t;
+		elseRun = f;
+		condition = c;
+		this.test = test;
+		this.parent = parent;
 	}
 	
 	/**
-	 * Logic statements for variables
-	 * @param logic Logical operator to perform (equal to or not equal to)
-	 * @param a Variable to read value from
-	 * @param b Variable to read and compare
-	 * @return
+	 * @param p The script to read values from
+	 * @return The same conditional statement, reading its values from another script (the parsed condition is shared)
 	 */
-	private static boolean condition(int logic, Variable a, Variable b)
+	public Conditional copy(Script p){return new Conditional(p, condition, test, trueRun, elseRun);}
+	
+	/** @return The condition "a:operator:b" as a comparison */
+	private static Condition compare(String c)
 	{
-		boolean rtn = false;
-		switch(logic)
-		{
-			case 0: if(!a.getValue().equals(b.getValue()))  rtn = true; else break;
-			case 1: if(a.getValue().equals(b.getValue()))   rtn = true; else break;
-		}
-		return rtn;
+		String[] s = c.split(":");
+		return Condition.compare(s[0], s[1], s[2]);
 	}
 	
 	/**
-	 * Logic statements for numerals
-	 * @param logic Logical operator to perform (not equal to, equal to, greater than, greater or equal, less than, lesser or equal)
-	 * @param a Numeral to read
-	 * @param b Numeral to read and compare to numeral A
-	 * @return
+	 * Sets the value to the value of the condition in it's current state
+	 * @return true when condition is true, false when condition is false;
 	 */
-	private static boolean condition(int logic, Numeral a, Numeral b)
+	private boolean evaluate()
 	{
-		double x = a.getValue(),
-			   y = b.getValue();
-		
-		boolean rtn = false;
-		switch(logic)
-		{
-			case 0: if(x != y) rtn = true; else break;
-			case 1: if(x == y) rtn = true; else break;
-			case 2: if(x <  y) rtn = true; else break;
-			case 3: if(x <= y) rtn = true; else break;
-			case 4: if(x >  y) rtn = true; else break;
-			case 5: if(x >= y) rtn = true; else break;
-		}
-		return rtn;
+		value = test.test(parent);
+		return value;
 	}
-
+	
 	/** @return The command to run */
 	public String[] getRunnable(){evaluate(); return value ? trueRun : elseRun;}
 	
+	/**
+	 * @param value A value of the condition
+	 * @return The command run for that value (without evaluating the condition)
+	 */
+	public String[] getRunnable(boolean value){return value ? trueRun : elseRun;}
+	
+	/** @return The condition, as "a:operator:b" (or as parsed, for conditions made with {@link Condition#parse(String[])}) */
+	public String getCondition(){return condition;}
+	
+	/** @return The value of the condition when it was last evaluated */
+	public boolean isTrue(){return value;}
+	
+	/** @return The parsed condition */
+	public Condition getTest(){return test;}
+	
 	/**
 	 * Parses the operation symbol to a number which corresponds to the condition method switches
 	 * @param input The string to parse
 	 * @return 0 to 5: an operation; -1 not an operation
 	 */
-	public int getOperation(String input)
-	{
-		if(input.equals("!=")) 		return 0;
-		else if(input.equals("=")) 	return 1;
-		else if(input.equals("<"))  return 2;
-		else if(input.equals("<=")) return 3;
-		else if(input.equals(">"))  return 4;
-		else if(input.equals("=>")) return 5;
-		return -1;
-	}
+	public int getOperation(String input){return Condition.operation(input);}
 	
 	
 	/* Inherited Methods (mostly useless :D) */
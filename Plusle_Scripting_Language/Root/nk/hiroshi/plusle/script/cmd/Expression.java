@@ -0,0 +1,326 @@
+package nk.hiroshi.plusle.script.cmd;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+import nk.hiroshi.plusle.script.data.Numeral;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * An arithmetic expression, such as "($a + 2) * -$b / sqrt($c) % 3". It is parsed once into postfix code, which is
+ * evaluated on a stack of doubles without creating any objects. <br>
+ * Expressions have numbers, numerals ("$n", 0 if there is no such numeral), parentheses, unary minus,
+ * the operators + - * / % (remainder) ^ (power, right to left) and the functions
+ * sqrt, abs, floor, ceil, round, exp, log, sin, cos, tan (one argument) and pow, mod, min, max (two arguments). <br>
+ * Expressions are parsed when they first run (a script only knows which names are numerals once it is linked),
+ * and shared by every script which runs the same text.
+ * @since 19 October, 2026
+ */
+public final class Expression
+{
+	/** Parsed expressions by text. Text which isn't an expression maps to {@link #NONE} */
+	private static final ConcurrentHashMap<String, Expression> parsed = new ConcurrentHashMap<String, Expression>();
+
+	/** The most expressions kept; the cache starts over when it is full */
+	private static final int CACHE = 4096;
+
+	private static final Expression NONE = new Expression(new int[0], new double[0], new String[0], 0);
+
+	/** Operations. Each instruction is an operation in its low 8 bits and an index (of a constant or a name) above them */
+	private static final int CONSTANT = 0, NUMERAL = 1, NEGATE = 2,
+							 ADD = 3, SUBTRACT = 4, MULTIPLY = 5, DIVIDE = 6, REMAINDER = 7, POWER = 8, MIN = 9, MAX = 10,
+							 SQRT = 11, ABS = 12, FLOOR = 13, CEIL = 14, ROUND = 15, EXP = 16, LOG = 17, SIN = 18, COS = 19, TAN = 20;
+
+	/** Functions by name; those before "pow" take one argument */
+	private static final String[] FUNCTIONS = {"sqrt", "abs", "floor", "ceil", "round", "exp", "log", "sin", "cos", "tan", "pow", "mod", "min", "max"};
+	private static final int[] FUNCTION_CODES = {SQRT, ABS, FLOOR, CEIL, ROUND, EXP, LOG, SIN, COS, TAN, POWER, REMAINDER, MIN, MAX};
+	private static final int UNARY_FUNCTIONS = 10;
+
+	/** The postfix code */
+	private final int[] code;
+
+	/** The numbers written in the expression */
+	private final double[] constants;
+
+	/** The names of the numerals read, and where they were last found */
+	private final String[] names;
+	private final Slot[] slots;
+
+	/** The most values on the stack at once */
+	private final int depth;
+
+	private Expression(int[] code, double[] constants, String[] names, int depth)
+	{
+		this.code = code;
+		this.constants = constants;
+		this.names = names;
+		this.depth = depth;
+		slots = new Slot[names.length];
+		for(int i = 0; i != slots.length; i++) slots[i] = Slot.NONE;
+	}
+
+	/**
+	 * Finds the parsed expression of a text, parsing it the first time
+	 * @param text The expression
+	 * @return The expression, or null if the text isn't an expression
+	 */
+	public static Expression of(String text)
+	{
+		Expression e = parsed.get(text);
+		if(e == null)
+		{
+			e = new Reader(text).expression();
+			if(CACHE <= parsed.size()) parsed.clear();
+			parsed.put(text, e);
+		}
+		return e == NONE ? null : e;
+	}
+
+	/** @return The most values on the stack while the expression is evaluated (the size the stack needs) */
+	public int getDepth(){return depth;}
+
+	/**
+	 * Evaluates the expression
+	 * @param script The script to read numerals from
+	 * @param stack The stack to evaluate on (at least {@link #getDepth()} long)
+	 * @return The value
+	 */
+	public double evaluate(Script script, double[] stack)
+	{
+		int top = -1;
+		for(int instruction : code)
+		{
+			switch(instruction & 0xFF)
+			{
+				case CONSTANT:  stack[++top] = constants[instruction >>> 8]; break;
+				case NUMERAL:   stack[++top] = numeral(script, instruction >>> 8); break;
+				case NEGATE:    stack[top] = -stack[top]; break;
+				case ADD:       top--; stack[top] = stack[top] + stack[top + 1]; break;
+				case SUBTRACT:  top--; stack[top] = stack[top] - stack[top + 1]; break;
+				case MULTIPLY:  top--; stack[top] = stack[top] * stack[top + 1]; break;
+				case DIVIDE:    top--; stack[top] = stack[top] / stack[top + 1]; break;
+				case REMAINDER: top--; stack[top] = stack[top] % stack[top + 1]; break;
+				case POWER:     top--; stack[top] = Math.pow(stack[top], stack[top + 1]); break;
+				case MIN:       top--; stack[top] = Math.min(stack[top], stack[top + 1]); break;
+				case MAX:       top--; stack[top] = Math.max(stack[top], stack[top + 1]); break;
+				case SQRT:  stack[top] = Math.sqrt(stack[top]);  break;
+				case ABS:   stack[top] = Math.abs(stack[top]);   break;
+				case FLOOR: stack[top] = Math.floor(stack[top]); break;
+				case CEIL:  stack[top] = Math.ceil(stack[top]);  break;
+				case ROUND: stack[top] = Math.round(stack[top]); break;
+				case EXP:   stack[top] = Math.exp(stack[top]);   break;
+				case LOG:   stack[top] = Math.log(stack[top]);   break;
+				case SIN:   stack[top] = Math.sin(stack[top]);   break;
+				case COS:   stack[top] = Math.cos(stack[top]);   break;
+				case TAN:   stack[top] = Math.tan(stack[top]);   break;
+			}
+		}
+		return stack[0];
+	}
+
+	/** @return The value of a numeral the expression reads (0 if the script has no such numeral) */
+	private double numeral(Script script, int index)
+	{
+		Slot s = slots[index];
+		if(!s.isFor(script.getNumeralNames())) slots[index] = s = Slot.numeral(script, names[index]);
+		if(s.index < 0) return 0.0;
+
+		Numeral n = script.getNumeral(s.index);
+		return n.getDouble();
+	}
+
+	/**
+	 * Writes the expression as Java source (the JVM compiler uses it)
+	 * @param numerals Writes a numeral as Java source
+	 * @return A Java double expression
+	 */
+	public String toSource(Names numerals)
+	{
+		ArrayList<String> stack = new ArrayList<String>();
+		for(int instruction : code)
+		{
+			int op = instruction & 0xFF;
+			String b = ADD <= op && op <= MAX ? stack.remove(stack.size() - 1) : null; //The right side of an operation
+
+			switch(op)
+			{
+				case CONSTANT:  stack.add("(" + constants[instruction >>> 8] + ")"); break;
+				case NUMERAL:   stack.add(numerals.numeral(names[instruction >>> 8])); break;
+				case NEGATE:    stack.add("(-" + stack.remove(stack.size() - 1) + ")"); break;
+				case ADD:       stack.add("(" + stack.remove(stack.size() - 1) + " + " + b + ")"); break;
+				case SUBTRACT:  stack.add("(" + stack.remove(stack.size() - 1) + " - " + b + ")"); break;
+				case MULTIPLY:  stack.add("(" + stack.remove(stack.size() - 1) + " * " + b + ")"); break;
+				case DIVIDE:    stack.add("(" + stack.remove(stack.size() - 1) + " / " + b + ")"); break;
+				case REMAINDER: stack.add("(" + stack.remove(stack.size() - 1) + " % " + b + ")"); break;
+				case POWER:     stack.add("Math.pow(" + stack.remove(stack.size() - 1) + ", " + b + ")"); break;
+				case MIN:       stack.add("Math.min(" + stack.remove(stack.size() - 1) + ", " + b + ")"); break;
+				case MAX:       stack.add("Math.max(" + stack.remove(stack.size() - 1) + ", " + b + ")"); break;
+				case ROUND:     stack.add("((double) Math.round(" + stack.remove(stack.size() - 1) + "))"); break;
+				default:        stack.add("Math." + FUNCTIONS[op - SQRT] + "(" + stack.remove(stack.size() - 1) + ")");
+			}
+		}
+		return stack.get(0);
+	}
+
+	/** Writes the numerals of an expression as source */
+	public interface Names
+	{
+		/** @return The source which reads the numeral */
+		String numeral(String name);
+	}
+
+	/**
+	 * Reads an expression and writes its postfix code: <br>
+	 * expression = term {("+" | "-") term}; term = unary {("*" | "/" | "%") unary}; unary = "-" unary | power;
+	 * power = primary ["^" unary]; primary = number | "$" name | function "(" expression {"," expression} ")" | "(" expression ")"
+	 */
+	private static class Reader
+	{
+		private final String text;
+		private int next, depth, max;
+
+		private final ArrayList<Integer> code = new ArrayList<Integer>();
+		private final ArrayList<Double> constants = new ArrayList<Double>();
+		private final ArrayList<String> names = new ArrayList<String>();
+
+		private Reader(String text){this.text = text;}
+
+		/** @return The expression, or NONE if the text isn't one */
+		private Expression expression()
+		{
+			try
+			{
+				sum();
+				if(peek() != 0) return NONE;
+			}
+			catch(IllegalArgumentException e){return NONE;} //Not an expression (this includes numbers which can't be read)
+
+			int[] c = new int[code.size()];
+			for(int i = 0; i != c.length; i++) c[i] = code.get(i);
+			double[] k = new double[constants.size()];
+			for(int i = 0; i != k.length; i++) k[i] = constants.get(i);
+			return new Expression(c, k, names.toArray(new String[names.size()]), max);
+		}
+
+		private void sum()
+		{
+			term();
+			for(char c = peek(); c == '+' || c == '-'; c = peek())
+			{
+				next++;
+				term();
+				emit(c == '+' ? ADD : SUBTRACT, 0, -1);
+			}
+		}
+
+		private void term()
+		{
+			unary();
+			for(char c = peek(); c == '*' || c == '/' || c == '%'; c = peek())
+			{
+				next++;
+				unary();
+				emit(c == '*' ? MULTIPLY : c == '/' ? DIVIDE : REMAINDER, 0, -1);
+			}
+		}
+
+		private void unary()
+		{
+			if(peek() == '-')
+			{
+				next++;
+				unary();
+				emit(NEGATE, 0, 0);
+			}
+			else power();
+		}
+
+		private void power()
+		{
+			primary();
+			if(peek() == '^')
+			{
+				next++;
+				unary();
+				emit(POWER, 0, -1);
+			}
+		}
+
+		private void primary()
+		{
+			char c = peek();
+			if(c == '(')
+			{
+				next++;
+				sum();
+				expect(')');
+			}
+			else if(c == '$')
+			{
+				next++;
+				String name = name();
+				int index = names.indexOf(name);
+				if(index < 0){names.add(name); index = names.size() - 1;}
+				emit(NUMERAL, index, 1);
+			}
+			else if(('0' <= c && c <= '9') || c == '.')
+			{
+				int start = next;
+				while(next < text.length() && (('0' <= text.charAt(next) && text.charAt(next) <= '9') || text.charAt(next) == '.')) next++;
+				constants.add(Double.parseDouble(text.substring(start, next))); //A NumberFormatException is an IllegalArgumentException
+				emit(CONSTANT, constants.size() - 1, 1);
+			}
+			else
+			{
+				String name = name();
+				int f = 0;
+				while(f != FUNCTIONS.length && !FUNCTIONS[f].equals(name)) f++;
+				if(f == FUNCTIONS.length) throw new IllegalArgumentException(name);
+
+				expect('(');
+				sum();
+				if(UNARY_FUNCTIONS <= f)
+				{
+					expect(',');
+					sum();
+					emit(FUNCTION_CODES[f], 0, -1);
+				}
+				else emit(FUNCTION_CODES[f], 0, 0);
+				expect(')');
+			}
+		}
+
+		/** @return A name: letters, digits, "_" and "." (names of imported modules) */
+		private String name()
+		{
+			peek();
+			int start = next;
+			while(next < text.length() && (Character.isLetterOrDigit(text.charAt(next)) || text.charAt(next) == '_' || text.charAt(next) == '.')) next++;
+			if(start == next) throw new IllegalArgumentException("name");
+			return text.substring(start, next);
+		}
+
+		/** Writes an instruction, keeping track of how many values are on the stack */
+		private void emit(int operation, int index, int change)
+		{
+			code.add(operation | index << 8);
+			depth += change;
+			max = Math.max(max, depth);
+		}
+
+		private void expect(char c)
+		{
+			if(peek() != c) throw new IllegalArgumentException(String.valueOf(c));
+			next++;
+		}
+
+		/** @return The next character which isn't a space (0 at the end) */
+		private char peek()
+		{
+			while(next < text.length() && text.charAt(next) == ' ') next++;
+			return next < text.length() ? text.charAt(next) : 0;
+		}
+	}
+}
@@ -18,8 +18,23 @@ public class Function implements Commander
 	/** The name of the function (not used) */
 	private final String NAME;
 	
-	/** The commands that are written into the function */
-	private final String[] COMMANDS;
+	/** The commands that are written into the function (null until a lazy function is compiled) */
+	private volatile String[] commands;
+	
+	/** The conditional statements of the function. Commands refer to them by index ("if 0") */
+	private Conditional[] conditions;
+	
+	/** The host function calls of the function. Commands refer to them by index ("call 0") */
+	private HostCall[] calls;
+	
+	/** The line each command is written on, counted from the declaration of the function; Parallel to commands */
+	private int[] lines;
+	
+	/** The line the function is declared on (0 based, as of the last time the script was put together) */
+	private int line;
+	
+	/** The source of a function which is compiled when it first runs (null if it was compiled by the parser) */
+	private final Source SOURCE;
 	
 	/** Return value of the function */
 	private String value;
@@ -31,12 +46,150 @@ public class Function implements Commander
 	 * @param p The parent script
 	 */
 	public Function(String n, String[] c, Script p)
+	{
+		this(n, c, new Conditional[0], new HostCall[0], p);
+	}
+	
+	/**
+	 * Creates a new function object which owns conditional statements
+	 * @param n The name of the function
+	 * @param c The commands written into the function
+	 * @param k The conditional statements written into the function
+	 * @param p The parent script
+	 */
+	public Function(String n, String[] c, Conditional[] k, Script p)
+	{
+		this(n, c, k, new HostCall[0], p);
+	}
+	
+	/**
+	 * Creates a new function object which owns conditional statements and host function calls
+	 * @param n The name of the function
+	 * @param c The commands written into the function
+	 * @param k The conditional statements written into the function
+	 * @param h The host function calls written into the function
+	 * @param p The parent script
+	 */
+	public Function(String n, String[] c, Conditional[] k, HostCall[] h, Script p)
+	{
+		this(n, c, new int[c.length], k, h, p);
+	}
+	
+	/**
+	 * Creates a new function object which knows the line each of its commands is written on
+	 * @param n The name of the function
+	 * @param c The commands written into the function
+	 * @param l The line of each command, counted from the declaration of the function
+	 * @param k The conditional statements written into the function
+	 * @param h The host function calls written into the function
+	 * @param p The parent script
+	 */
+	public Function(String n, String[] c, int[] l, Conditional[] k, HostCall[] h, Script p)
 	{
 		NAME = n;
-		COMMANDS = c;
+		commands = c;
+		lines = l;
+		conditions = k;
+		calls = h;
+		SOURCE = null;
 		PARENT = p;
 	}
 	
+	/**
+	 * Creates a function which is compiled the first time its commands or conditional statements are needed
+	 * @param n The name of the function
+	 * @param s The source of the function
+	 * @param p The parent script
+	 */
+	public Function(String n, Source s, Script p)
+	{
+		NAME = n;
+		SOURCE = s;
+		PARENT = p;
+	}
+	
+	/**
+	 * @param index The index of the conditional statement (as written in the "if" command)
+	 * @return The conditional statement, or null if the index is not valid
+	 */
+	public Conditional getCondition(int index)
+	{
+		if(commands == null) compile();
+		if(0 <= index && index < conditions.length) return conditions[index];
+		return null;
+	}
+	
+	/**
+	 * @param index The index of the host function call (as written in the "call" command)
+	 * @return The call, or null if the index is not valid
+	 */
+	public HostCall getCall(int index)
+	{
+		if(commands == null) compile();
+		if(0 <= index && index < calls.length) return calls[index];
+		return null;
+	}
+	
+	/**
+	 * Creates a copy of the function for another script. The commands are shared; 
+	 * the return value and the conditional statements belong to the copy (host function calls are shared too)
+	 * @param p The script the copy belongs to
+	 * @return The copy
+	 */
+	public Function copy(Script p)
+	{
+		if(commands == null) //Still shares the source, so it is only compiled once
+		{
+			Function f = new Function(NAME, SOURCE, p);
+			f.line = line;
+			return f;
+		}
+		
+		Conditional[] k = new Conditional[conditions.length];
+		for(int i = 0; i != k.length; i++) k[i] = conditions[i].copy(p);
+		Function f = new Function(NAME, commands, lines, k, calls, p);
+		f.line = line;
+		return f;
+	}
+	
+	/** @return true if the function has been compiled */
+	public boolean isCompiled(){return commands != null;}
+	
+	/** Takes the commands, conditional statements and host function calls from the compiled source */
+	private synchronized void compile()
+	{
+		if(commands != null) return;
+		
+		Function compiled = SOURCE.get();
+		Conditional[] k = compiled.conditions;
+		if(compiled.PARENT != PARENT)
+		{
+			k = new Conditional[k.length];
+			for(int i = 0; i != k.length; i++) k[i] = compiled.conditions[i].copy(PARENT);
+		}
+		
+		conditions = k;
+		calls = compiled.calls;
+		lines = compiled.lines;
+		commands = compiled.commands; //Written last; it tells other threads the function is ready
+	}
+	
+	/**
+	 * @return The line each command is written on, counted from the declaration of the function 
+	 * (0 for commands which weren't parsed from a script); Parallel to getRunnable()
+	 */
+	public int[] getLines()
+	{
+		if(commands == null) compile();
+		return lines;
+	}
+	
+	/** @return The line the function is declared on (0 based), so getLine() + getLines()[i] is the line of a command counted from 1 */
+	public int getLine(){return line;}
+	
+	/** @param line The line the function is declared on (0 based); Set by the parser as lines are added above the function */
+	public void setLine(int line){this.line = line;}
+	
 	@Override
 	public String getName(){return NAME;}
 	
@@ -47,8 +200,30 @@ public class Function implements Commander
 	public String getValue(){return value;}
 
 	@Override
-	public String[] getRunnable(){return COMMANDS;}
+	public String[] getRunnable()
+	{
+		if(commands == null) compile();
+		return commands;
+	}
 
 	@Override
 	public void setValue(String value){this.value = value;}
+	
+	/**
+	 * The source of a function that hasn't been compiled. It is shared by the copies of the function
+	 * and compiles the function once, for whichever copy runs first.
+	 */
+	public static abstract class Source
+	{
+		private Function compiled;
+		
+		/** @return The compiled function (its commands and conditional statements are taken by each copy) */
+		protected abstract Function compile();
+		
+		private synchronized Function get()
+		{
+			if(compiled == null) compiled = compile();
+			return compiled;
+		}
+	}
 }
@@ -0,0 +1,76 @@
+package nk.hiroshi.plusle.script.cmd;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * A call of a host (Java) function, written as "call name arguments" or "name = call name arguments". <br>
+ * The function is found when the script is parsed and kept here as a MethodHandle whose number parameters and result
+ * are doubles, so running the call only reads the arguments. When every parameter and the result are numbers, the handle
+ * can be invoked exactly with primitive doubles (see {@link #isNumeric()}). <br>
+ * Commands refer to their calls by index ("call 0", or "call 0 name" to store the result), as they do with conditional statements.
+ * @since 19 October, 2026
+ */
+public class HostCall
+{
+	/** The name the function was registered under */
+	private final String name;
+	
+	/** The function; parameters and result are either double or text */
+	private final MethodHandle handle;
+	
+	/** The Java method of the function, when it was registered as one (null otherwise) */
+	private final Method method;
+	
+	/** The arguments as written in the script */
+	private final String[] arguments;
+	
+	/** For each parameter, true if it is a number (false: text) */
+	private final boolean[] numbers;
+	
+	/** true if every parameter and the result are numbers */
+	private final boolean numeric;
+	
+	/**
+	 * @param name The name the function was registered under
+	 * @param handle The function, whose number parameters and result are doubles and others take text
+	 * @param method The Java method of the function (may be null)
+	 * @param arguments The arguments as written in the script (one per parameter)
+	 */
+	public HostCall(String name, MethodHandle handle, Method method, String[] arguments)
+	{
+		this.name = name;
+		this.handle = handle;
+		this.method = method;
+		this.arguments = arguments;
+		
+		MethodType type = handle.type();
+		boolean numeric = type.returnType() == double.class;
+		numbers = new boolean[type.parameterCount()];
+		for(int i = 0; i != numbers.length; i++)
+		{
+			numbers[i] = type.parameterType(i) == double.class;
+			numeric &= numbers[i];
+		}
+		this.numeric = numeric;
+	}
+	
+	public String getName(){return name;}
+	
+	public MethodHandle getHandle(){return handle;}
+	
+	/** @return The Java method of the function, null if it was registered as a MethodHandle */
+	public Method getMethod(){return method;}
+	
+	public String[] getArguments(){return arguments;}
+	
+	/** @return true if the parameter is a number (false: text) */
+	public boolean isNumber(int parameter){return numbers[parameter];}
+	
+	/** @return true if every parameter and the result are numbers; the handle's type is then (double, ...)double */
+	public boolean isNumeric(){return numeric;}
+}
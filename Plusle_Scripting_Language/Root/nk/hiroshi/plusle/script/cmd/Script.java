@@ -1,6 +1,10 @@
 package nk.hiroshi.plusle.script.cmd;
 
+import java.util.IdentityHashMap;
+
 import nk.hiroshi.plusle.script.data.Numeral;
+import nk.hiroshi.plusle.script.data.NumeralArray;
+import nk.hiroshi.plusle.script.data.Table;
 import nk.hiroshi.plusle.script.data.Variable;
 
 /* This file is part of Plusle Scripting Language *
@@ -18,12 +22,18 @@ public class Script implements Commander
 	private String[] script,		// Contains the "main method" of the script
 					 numeralNames,  // Contains the names of all numerals
 					 functionNames, // Contains all the Function Names of the script
-					 variableNames; // Contains all the Variable Names of the script
+					 variableNames, // Contains all the Variable Names of the script
+					 arrayNames,    // Contains the names of all numeral arrays
+					 tableNames;    // Contains the names of all tables
 	
 	private Function[] 	  functions; // Functions owned by script
 	private Variable[] 	  variables; // Variables owned by script
 	private Numeral[]     numerals;  // Numerals owned by script
-	private Conditional[] condition; // Conditional Statements
+	private NumeralArray[] arrays;   // Numeral arrays owned by script
+	private Table[]       tables;    // Tables owned by script
+	private Conditional[] condition; // Conditional Statements of the main method
+	private HostCall[]    calls;     // Host Function Calls of the main method
+	private int[]         lines;     // The line of each command of the main method (counted from 1)
 	
 	/**
 	 * Creates Scipt
@@ -33,8 +43,17 @@ public class Script implements Commander
 	 * @param f All functions declared in the script
 	 * @param vn The names of all the variables from the script
 	 * @param v All variables declared in the script
+	 * @param nn The names of all the numerals from the script
+	 * @param n All numerals declared in the script
+	 * @param an The names of all the numeral arrays from the script
+	 * @param a All numeral arrays declared in the script
+	 * @param tn The names of all the tables from the script
+	 * @param t All tables declared in the script
+	 * @param c The conditional statements of the main method
+	 * @param h The host function calls of the main method
+	 * @param l The line of each command of the main method, counted from 1; Parallel to sc
 	 */
-	public void makeScript(String name, String[] sc, String[] fn, Function[] f, String[] vn, Variable[] v, String[] nn, Numeral[] n, Conditional[] c)
+	public void makeScript(String name, String[] sc, String[] fn, Function[] f, String[] vn, Variable[] v, String[] nn, Numeral[] n, String[] an, NumeralArray[] a, String[] tn, Table[] t, Conditional[] c, HostCall[] h, int[] l)
 	{
 		this.name = name;
 		script = sc;
@@ -42,9 +61,68 @@ public class Script implements Commander
 		variableNames = vn;
 		numeralNames = nn;
 		condition = c;
+		calls = h;
+		lines = l;
 		functions = f;
 		variables = v;
 		numerals  = n;
+		arrayNames = an;
+		arrays = a;
+		tableNames = tn;
+		tables = t;
+	}
+	
+	/**
+	 * Creates a frame of the script: a script which runs the same commands but has its own variables, numerals, 
+	 * function values and conditional statements (holding the values they have now). 
+	 * Each imported module gets a frame of its own, so its functions still read the names of their module; 
+	 * the frame of the script holds the same variables and numerals as the frames of its modules, as the script does. 
+	 * Numeral arrays and tables are shared with this script (the interpreter doesn't let "parallel each" change them).
+	 * @return The frame
+	 */
+	public Script fork(){return fork(new IdentityHashMap<Object, Object>());}
+	
+	/**
+	 * @param copies The scripts, functions, variables and numerals copied so far, and their copies
+	 * @return The frame
+	 */
+	private Script fork(IdentityHashMap<Object, Object> copies)
+	{
+		Script frame = (Script) copies.get(this);
+		if(frame != null) return frame;
+		
+		frame = new Script();
+		copies.put(this, frame);
+		for(Function function : functions) if(function.getParent() != this && function.getParent() != null) function.getParent().fork(copies); //Modules first
+		
+		Function[] f = new Function[functions.length];
+		Variable[] v = new Variable[variables.length];
+		Numeral[]  n = new Numeral[numerals.length];
+		Conditional[] c = new Conditional[condition.length];
+		
+		for(int i = 0; i != f.length; i++) 
+		{
+			if((f[i] = (Function) copies.get(functions[i])) != null) continue;
+			f[i] = functions[i].copy(frame);
+			f[i].setValue(functions[i].getValue());
+			copies.put(functions[i], f[i]);
+		}
+		for(int i = 0; i != v.length; i++)
+		{
+			if((v[i] = (Variable) copies.get(variables[i])) != null) continue;
+			v[i] = new Variable(variables[i].getName(), variables[i].getValue());
+			copies.put(variables[i], v[i]);
+		}
+		for(int i = 0; i != n.length; i++)
+		{
+			if((n[i] = (Numeral) copies.get(numerals[i])) != null) continue;
+			n[i] = new Numeral(numerals[i].getName(), numerals[i].getDouble());
+			copies.put(numerals[i], n[i]);
+		}
+		for(int i = 0; i != c.length; i++) c[i] = condition[i].copy(frame);
+		
+		frame.makeScript(name, script, functionNames, f, variableNames, v, numeralNames, n, arrayNames, arrays, tableNames, tables, c, calls, lines);
+		return frame;
 	}
 	
 	/** @returns The script name */
@@ -53,6 +131,9 @@ public class Script implements Commander
 	/** @returns The main method */
 	public String[] getRunnable(){return script;}
 	
+	/** @returns The line of each command of the main method (counted from 1) */
+	public int[] getLines(){return lines;}
+	
 	/** @returns The Variable name array */
 	public String[] getVariableNames(){return variableNames;}
 	
@@ -62,6 +143,12 @@ public class Script implements Commander
 	/** @returns The Numeral name array*/
 	public String[] getNumeralNames(){return numeralNames;}
 	
+	/** @returns The Numeral Array name array*/
+	public String[] getArrayNames(){return arrayNames;}
+	
+	/** @returns The Table name array*/
+	public String[] getTableNames(){return tableNames;}
+	
 	/** @returns All the variables */
 	public Variable[] getVariables(){return variables;}
 	
@@ -70,6 +157,12 @@ public class Script implements Commander
 	
 	/** @returns All the numerals owned by the script */
 	public Numeral[] getNumerals(){return numerals;}
+	
+	/** @returns All the numeral arrays owned by the script */
+	public NumeralArray[] getArrays(){return arrays;}
+	
+	/** @returns All the tables owned by the script */
+	public Table[] getTables(){return tables;}
 
 	/**
 	 * Goes through every element in an array and sees if the given value exists in the array
@@ -119,29 +212,42 @@ public class Script implements Commander
 	public boolean isFunction(String fName){return isValueIn(fName, functionNames);}
 	public boolean isVariable(String vName){return isValueIn(vName, variableNames);}
 	public boolean isNumeral(String nName){return isValueIn(nName, numeralNames);}
+	public boolean isArray(String aName){return isValueIn(aName, arrayNames);}
+	public boolean isTable(String tName){return isValueIn(tName, tableNames);}
 	
 	/* get Type Index gets the position of the desired element */
 	public int getFunctionIndex(String fName){return getIndexOf(fName, functionNames);}
 	public int getVariableIndex(String vName){return getIndexOf(vName, variableNames);}
 	public int getNumeralIndex(String nName){return getIndexOf(nName, numeralNames);}
+	public int getArrayIndex(String aName){return getIndexOf(aName, arrayNames);}
+	public int getTableIndex(String tName){return getIndexOf(tName, tableNames);}
 	
 	/* Gets the element from the specified index */
 	public Function getFunction(int index){return getValueOf(index, functions);}
 	public Variable getVariable(int index){return getValueOf(index, variables);}
 	public Numeral getNumeral(int index){return getValueOf(index, numerals);}
+	public NumeralArray getArray(int index){return getValueOf(index, arrays);}
+	public Table getTable(int index){return getValueOf(index, tables);}
 	
 	public Conditional getCondition(int index){return getValueOf(index, condition);}
 	
+	/** @returns The host function call of the main method with the index (as written in "call 0"), null if the index is not valid */
+	public HostCall getCall(int index){return getValueOf(index, calls);}
+	
 	/* Gets the element from the name (potential arrayOutOfBounds) */
 	public Function getFunction(String fName){return getFunction(getFunctionIndex(fName));}
 	public Variable getVariable(String vName){return getVariable(getVariableIndex(vName));}
 	public Numeral getNumeral(String nName){return getNumeral(getNumeralIndex(nName));}
+	public NumeralArray getArray(String aName){return getArray(getArrayIndex(aName));}
+	public Table getTable(String tName){return getTable(getTableIndex(tName));}
 	
 	/** Searches if the dataType exists under that name */
 	public boolean isStorageData(String name)
 	{
 		for(String n : variableNames) if(n.equals(name)) return true;
 		for(String n : numeralNames)   if(n.equals(name)) return true;
+		for(String n : arrayNames)     if(n.equals(name)) return true;
+		for(String n : tableNames)     if(n.equals(name)) return true;
 		return false;
 	}
 	
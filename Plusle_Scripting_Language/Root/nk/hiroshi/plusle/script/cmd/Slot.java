@@ -0,0 +1,37 @@
+package nk.hiroshi.plusle.script.cmd;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * Where a name was found in the names of a script (-1 if it isn't there). <br>
+ * Parsed conditions and expressions keep one per name they read, so the names of the script are only searched
+ * the first time; the slot is found again when the script is linked again (its names are replaced, never changed).
+ * @since 19 October, 2026
+ */
+final class Slot
+{
+	/** A slot which belongs to no script */
+	static final Slot NONE = new Slot(null, -1);
+	
+	/** The names the index was found in */
+	private final String[] names;
+	
+	/** The index of the name */
+	final int index;
+	
+	private Slot(String[] names, int index)
+	{
+		this.names = names;
+		this.index = index;
+	}
+	
+	/** @return true if the slot was found in these names */
+	boolean isFor(String[] names){return this.names == names;}
+	
+	/** @return The slot of a numeral of a script */
+	static Slot numeral(Script script, String name){return new Slot(script.getNumeralNames(), script.getNumeralIndex(name));}
+	
+	/** @return The slot of a variable of a script */
+	static Slot variable(Script script, String name){return new Slot(script.getVariableNames(), script.getVariableIndex(name));}
+}
@@ -44,7 +44,7 @@ abstract class DataType<Type>
 	/** @return The Type of Data (simple) */
 	public String getDataType(){return getType().getSimpleName();}
 	
-	public String toString(){return getName() + " " + getDataType() + " " + value;}
+	public String toString(){return getName() + " " + getDataType() + " " + getValue();}
 	
 	/** Get the value of the DataType */
 	protected Type get(){return value;}
@@ -19,13 +19,31 @@ public class Numeral extends DataType<Double>
 							 MULTIPLY = 2,
 							 DIVIDE   = 3;
 	
-	public Numeral(String n, Double v){super(n, v);}
+	/** The value, kept as a primitive so arithmetic doesn't create a Double for each result */
+	private double value;
+	
+	public Numeral(String n, Double v){this(n, v.doubleValue());}
+	
+	public Numeral(String n, double v)
+	{
+		super(n, null);
+		value = v;
+	}
 
 	@Override
-	public void setValue(Double v){set(v);}
+	public void setValue(Double v){value = v;}
 
 	@Override
-	public Double getValue(){return get();}
+	public Double getValue(){return value;}
+	
+	/** @return The value, without creating a Double */
+	public double getDouble(){return value;}
+	
+	/** Sets the value, without creating a Double */
+	public void setDouble(double v){value = v;}
+	
+	@Override
+	public Class<?> getType(){return Double.class;}
 	
 	/**
 	 * Sets the value of Numeral A to the result of the operation of Numerals b and c
@@ -41,12 +59,12 @@ public class Numeral extends DataType<Double>
 
 		switch(operation)
 		{
-			case 0: value = b.getValue() + c.getValue(); break;
-			case 1: value = b.getValue() - c.getValue(); break;
-			case 2: value = b.getValue() * c.getValue(); break;
-			case 3: value = b.getValue() / c.getValue(); break;
+			case 0: value = b.value + c.value; break;
+			case 1: value = b.value - c.value; break;
+			case 2: value = b.value * c.value; break;
+			case 3: value = b.value / c.value; break;
 		}
-		a.setValue(value);
+		a.value = value;
 	}
 	
 	/** a = b + c */
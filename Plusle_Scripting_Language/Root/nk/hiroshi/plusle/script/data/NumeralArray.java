@@ -0,0 +1,90 @@
+package nk.hiroshi.plusle.script.data;
+
+import java.util.Arrays;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * This DataType stores a list of doubles in one contiguous array (declared as "arr: name = 1 2 3" or "arr: name = [100]"). <br>
+ * Operations on the whole array are plain loops over the array so the JIT can vectorize them.
+ *
+ * @since 19 October, 2026
+ */
+public class NumeralArray extends DataType<double[]>
+{
+	public NumeralArray(String n, double[] v){super(n, v);}
+
+	@Override
+	public void setValue(double[] v){set(v);}
+
+	@Override
+	public double[] getValue(){return get();}
+
+	/** @return The number of values */
+	public int length(){return get().length;}
+
+	/** @return The value at an index */
+	public double get(int index){return get()[index];}
+
+	/** Sets the value at an index */
+	public void set(int index, double v){get()[index] = v;}
+
+	/** @return The sum of all values */
+	public double sum()
+	{
+		double[] a = get();
+		double sum = 0.0;
+		for(int i = 0; i < a.length; i++) sum += a[i];
+		return sum;
+	}
+
+	/** @return The smallest value (NaN when empty) */
+	public double min()
+	{
+		double[] a = get();
+		if(a.length == 0) return Double.NaN;
+		double min = a[0];
+		for(int i = 1; i < a.length; i++) min = Math.min(min, a[i]);
+		return min;
+	}
+
+	/** @return The largest value (NaN when empty) */
+	public double max()
+	{
+		double[] a = get();
+		if(a.length == 0) return Double.NaN;
+		double max = a[0];
+		for(int i = 1; i < a.length; i++) max = Math.max(max, a[i]);
+		return max;
+	}
+
+	/** Multiplies every value by a factor */
+	public void scale(double factor)
+	{
+		double[] a = get();
+		for(int i = 0; i < a.length; i++) a[i] *= factor;
+	}
+
+	/** Adds a number to every value */
+	public void add(double term)
+	{
+		double[] a = get();
+		for(int i = 0; i < a.length; i++) a[i] += term;
+	}
+
+	/**
+	 * Adds the values of another array (multiplied by a factor) to the values of this one, index by index
+	 * @param b The array to add (only as many values as the shorter array holds are added)
+	 * @param factor 1 to add, -1 to subtract
+	 */
+	public void add(NumeralArray b, double factor)
+	{
+		double[] a = get(), c = b.get();
+		int length = Math.min(a.length, c.length);
+		for(int i = 0; i < length; i++) a[i] += c[i] * factor;
+	}
+
+	@Override
+	public String toString(){return getName() + " " + getDataType() + " " + Arrays.toString(get());}
+}
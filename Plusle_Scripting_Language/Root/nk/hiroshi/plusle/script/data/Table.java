@@ -0,0 +1,193 @@
+package nk.hiroshi.plusle.script.data;
+
+/* This file is part of Plusle Scripting Language *
+ * Please refer to the MIT license                */
+
+/**
+ * This DataType maps text keys to text (String) or numeral (Double) values. It is declared as "map: name = {}" or
+ * "map: name = key:value key:value". <br>
+ * The entries are kept in an open-addressing hash table (linear probing); keys, their hashes and values are stored in
+ * parallel arrays so a lookup touches no other objects than the key it compares. Removed entries leave a marker behind
+ * until the table is rebuilt.
+ *
+ * @since 19 October, 2026
+ */
+public class Table extends DataType<Object[]>
+{
+	/** Marks a slot whose entry was removed (compared by identity) */
+	private static final String REMOVED = new String("");
+
+	/** The table is rebuilt once this many of every 4 slots are used (entries and removed markers) */
+	private static final int LOAD = 3;
+
+	/** Keys of the slots (null: never used) */
+	private String[] keys;
+
+	/** Hashes of the keys, so they're never computed twice */
+	private int[] hashes;
+
+	/** Values of the slots (the array is also the DataType's value) */
+	private Object[] values;
+
+	/** Number of entries, and number of slots holding either an entry or a removed marker */
+	private int size = 0, used = 0;
+
+	/** Creates an empty table */
+	public Table(String n)
+	{
+		super(n, new Object[16]);
+		keys = new String[16];
+		hashes = new int[16];
+		values = get();
+	}
+
+	/** @return Pairs of keys and values ({key, value, key, value, ...}) in the order of the table */
+	@Override
+	public Object[] getValue()
+	{
+		Object[] pairs = new Object[size * 2];
+		for(int i = 0, p = 0; i != keys.length; i++)
+		{
+			if(keys[i] != null && keys[i] != REMOVED)
+			{
+				pairs[p++] = keys[i];
+				pairs[p++] = values[i];
+			}
+		}
+		return pairs;
+	}
+
+	/** Replaces the contents of the table with pairs of keys and values ({key, value, key, value, ...}) */
+	@Override
+	public void setValue(Object[] pairs)
+	{
+		keys = new String[16];
+		hashes = new int[16];
+		values = new Object[16];
+		size = used = 0;
+		set(values);
+		for(int i = 0; i + 1 < pairs.length; i += 2) put((String) pairs[i], pairs[i + 1]);
+	}
+
+	/** @return The number of entries */
+	public int size(){return size;}
+
+	/** @return The value of a key (a String or a Double), null if the key isn't in the table */
+	public Object get(String key)
+	{
+		int slot = find(key, hash(key));
+		return slot < 0 ? null : values[slot];
+	}
+
+	/** @return true if the key is in the table */
+	public boolean contains(String key){return 0 <= find(key, hash(key));}
+
+	/**
+	 * Sets the value of a key, adding the key if it isn't in the table
+	 * @param key The key
+	 * @param value A String or a Double
+	 */
+	public void put(String key, Object value)
+	{
+		int hash = hash(key), slot = find(key, hash);
+		if(0 <= slot)
+		{
+			values[slot] = value;
+			return;
+		}
+
+		if(keys.length * LOAD <= (used + 1) * 4) rebuild();
+
+		int mask = keys.length - 1;
+		slot = hash & mask;
+		while(keys[slot] != null && keys[slot] != REMOVED) slot = (slot + 1) & mask;
+
+		if(keys[slot] == null) used++;
+		keys[slot] = key;
+		hashes[slot] = hash;
+		values[slot] = value;
+		size++;
+	}
+
+	/**
+	 * Removes a key
+	 * @return true if the key was in the table
+	 */
+	public boolean remove(String key)
+	{
+		int slot = find(key, hash(key));
+		if(slot < 0) return false;
+
+		keys[slot] = REMOVED;
+		values[slot] = null;
+		size--;
+		return true;
+	}
+
+	/** @return A copy of the keys, in the order of the table (changing the table doesn't change the copy) */
+	public String[] keys()
+	{
+		String[] copy = new String[size];
+		for(int i = 0, k = 0; i != keys.length; i++) if(keys[i] != null && keys[i] != REMOVED) copy[k++] = keys[i];
+		return copy;
+	}
+
+	/**
+	 * Finds the slot of a key
+	 * @return The slot, -1 if the key isn't in the table
+	 */
+	private int find(String key, int hash)
+	{
+		int mask = keys.length - 1;
+		for(int slot = hash & mask; keys[slot] != null; slot = (slot + 1) & mask)
+		{
+			if(hashes[slot] == hash && keys[slot] != REMOVED && keys[slot].equals(key)) return slot;
+		}
+		return -1;
+	}
+
+	/** Spreads the bits of String.hashCode() so that similar keys don't end up next to each other */
+	private static int hash(String key)
+	{
+		int h = key.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/** Copies the entries into a new table (twice as big, unless most of the used slots only held removed entries) */
+	private void rebuild()
+	{
+		String[] oldKeys = keys;
+		int[] oldHashes = hashes;
+		Object[] oldValues = values;
+
+		int capacity = keys.length;
+		if(capacity * LOAD <= (size + 1) * 8) capacity *= 2;
+
+		keys = new String[capacity];
+		hashes = new int[capacity];
+		values = new Object[capacity];
+		set(values);
+		used = size;
+
+		int mask = capacity - 1;
+		for(int i = 0; i != oldKeys.length; i++)
+		{
+			if(oldKeys[i] == null || oldKeys[i] == REMOVED) continue;
+
+			int slot = oldHashes[i] & mask;
+			while(keys[slot] != null) slot = (slot + 1) & mask;
+			keys[slot] = oldKeys[i];
+			hashes[slot] = oldHashes[i];
+			values[slot] = oldValues[i];
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder s = new StringBuilder(getName()).append(" Table {");
+		Object[] pairs = getValue();
+		for(int i = 0; i < pairs.length; i += 2) s.append(i == 0 ? "" : ", ").append(pairs[i]).append('=').append(pairs[i + 1]);
+		return s.append('}').toString();
+	}
+}
@@ -5,12 +5,17 @@ package nk.hiroshi.plusle.script.data;
  * Please refer to the MIT license                */
 
 /**
- * This DataType is intended for strings. It is just an extended DataType with a specific type argument.
+ * This DataType is intended for strings. It is just an extended DataType with a specific type argument. <br>
+ * Text appended to a variable is collected in a builder and only joined to the value when the value is read,
+ * so building a long string one piece at a time takes linear time.
  * @author Ryan Kerr
  * @since 12 January, 2015
  */
 public class Variable extends DataType<String> 
 {
+	/** Text appended since the value was last read (null when there is none) */
+	private StringBuilder appended = null;
+	
 	/**
 	 * Creates a String variable
 	 * @param n Name
@@ -19,8 +24,38 @@ public class Variable extends DataType<String>
 	public Variable(String n, String v){super(n, v);}
 
 	@Override
-	public void setValue(String v){set(v);}
+	public void setValue(String v)
+	{
+		appended = null;
+		set(v);
+	}
 	
 	@Override
-	public String getValue(){return get();}
+	public String getValue()
+	{
+		if(appended != null) //Join the appended text before it is printed or compared
+		{
+			set(appended.insert(0, get()).toString());
+			appended = null;
+		}
+		return get();
+	}
+	
+	/**
+	 * Adds text to the end of the value (amortized constant time; the value is joined when it is next read)
+	 * @param v The text to add
+	 */
+	public void append(String v)
+	{
+		if(appended == null) appended = new StringBuilder(Math.max(16, v.length() * 2));
+		appended.append(v);
+	}
+	
+	/** @return The length of the value (-1 if it is null), without joining the appended text */
+	public int length()
+	{
+		String v = get();
+		if(appended == null) return v == null ? -1 : v.length();
+		return String.valueOf(v).length() + appended.length();
+	}
 }